@@ -0,0 +1,80 @@
+package cz.burdemar.products.products.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.event.OrderStatusChangedEvent;
+import cz.burdemar.products.products.model.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.InvalidMimeTypeException;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Serialized JSON of orders that reached a terminal status. Such an order never changes again,
+ * so its response can be served from memory and cached by clients for good. The response is
+ * customer data, so only the client's own cache may keep it, not shared proxies or CDNs.
+ */
+@Component
+@Slf4j
+public class TerminalOrderCache {
+    public static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePrivate().immutable();
+
+    private static final List<MediaType> BINARY_TYPES = List.of(
+            MediaType.valueOf("application/x-jackson-smile"), MediaType.APPLICATION_CBOR);
+
+    private final ObjectMapper objectMapper;
+    private final LruCache<Long, byte[]> responses;
+
+    public TerminalOrderCache(ObjectMapper objectMapper, @Value("${shop.order-cache.size:10000}") int size) {
+        this.objectMapper = objectMapper;
+        this.responses = new LruCache<>(size);
+    }
+
+    public static boolean isTerminal(Order.OrderStatus status) {
+        return status != Order.OrderStatus.PENDING;
+    }
+
+    /**
+     * Whether a request with this Accept header can be answered with cached JSON. Clients that ask
+     * for a binary format go through regular content negotiation instead.
+     */
+    public static boolean acceptsCachedJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            List<MediaType> accepted = MediaType.parseMediaTypes(accept);
+            return accepted.stream().anyMatch(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    && accepted.stream().noneMatch(type -> BINARY_TYPES.stream().anyMatch(type::equalsTypeAndSubtype));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    public byte[] get(Long orderId) {
+        return responses.get(orderId);
+    }
+
+    public void put(OrderDTO order) {
+        if (!isTerminal(order.getStatus())) {
+            return;
+        }
+        try {
+            responses.put(order.getId(), objectMapper.writeValueAsBytes(order));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not cache order {}", order.getId(), e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        put(event.order());
+    }
+}
@@ -0,0 +1,466 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.datasource.ReadOnlyRoutingDataSource;
+import cz.burdemar.products.products.dto.ProductDTO;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
+import cz.burdemar.products.products.event.ProductsImportedEvent;
+import cz.burdemar.products.products.model.CatalogEpoch;
+import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.repository.CatalogEpochRepository;
+import cz.burdemar.products.products.repository.ProductRepository;
+import cz.burdemar.products.products.repository.ProductTombstoneRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static cz.burdemar.products.products.model.Money.SCALE;
+
+/**
+ * Optional read-side copy of the catalog kept off-heap in memory-mapped files, so that serving
+ * product reads neither loads entities nor keeps millions of objects on the heap, and a restart
+ * reopens the files instead of reloading the catalog.
+ * <p>
+ * {@code products.dat} holds a header and one fixed-width record per product id: id, price in
+ * minor units, stock and the offset and length of the name in {@code names.dat}, an append-only
+ * heap of UTF-8 names. Writers are serialized; readers take no lock and use a per-record stamp,
+ * odd while the record is written, to retry reads that overlapped a write.
+ * <p>
+ * Stock is written through from stock change events and the other changes are reloaded from the
+ * primary when they are published. The header records the change version up to which every
+ * change is applied; a periodic sync catches up from there, which also covers anything an event
+ * missed. The files are opened once the application has started, after any startup data was
+ * loaded; products changed meanwhile are read back once they are open. A restart after a clean
+ * shutdown only catches up. After a crash, a configuration change, once half of the name heap is
+ * garbage, or when the database is not the one the files were made from (another
+ * {@link CatalogEpoch}, or behind the stored version), the files are rebuilt.
+ */
+@Component
+@Slf4j
+public class MappedProductStore {
+    private static final long MAGIC = 0x50524f4455435453L;
+    private static final int FORMAT = 2;
+    private static final int PAGE_SIZE = 10_000;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int MAGIC_AT = 0;
+    private static final int FORMAT_AT = 8;
+    private static final int CLEAN_AT = 12;
+    private static final int CAPACITY_AT = 16;
+    private static final int VERSION_AT = 24;
+    private static final int NAMES_END_AT = 32;
+    private static final int HIGHEST_ID_AT = 40;
+    private static final int EPOCH_AT = 48;
+
+    private static final int RECORD_SIZE = 40;
+    private static final int STAMP = 0;
+    private static final int ID = 8;
+    private static final int PRICE = 16;
+    private static final int STOCK = 24;
+    private static final int NAME_LENGTH = 28;
+    private static final int NAME_OFFSET = 32;
+
+    private static final VarHandle STAMPS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final CatalogEpochRepository catalogEpochRepository;
+    private final ProductChangeVersions changeVersions;
+    // On the primary, as a lagging replica may miss a change just committed, and new, as events
+    // are handled after their transaction committed
+    private final TransactionTemplate primaryReads;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final Path directory;
+    private final int maxProducts;
+    private final int nameHeapSize;
+
+    private MappedByteBuffer records;
+    private MappedByteBuffer names;
+    private volatile boolean ready;
+    private boolean opening;
+    // Products changed while opening, read back once the store is ready; guarded by this
+    private final Set<Long> changedWhileOpening = new HashSet<>();
+
+    public MappedProductStore(ProductRepository productRepository,
+                              ProductTombstoneRepository productTombstoneRepository,
+                              CatalogEpochRepository catalogEpochRepository,
+                              ProductChangeVersions changeVersions,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${shop.products.mmap-store.enabled:false}") boolean enabled,
+                              @Value("${shop.products.mmap-store.directory:${java.io.tmpdir}/products-catalog}") Path directory,
+                              @Value("${shop.products.mmap-store.max-products:10000000}") int maxProducts,
+                              @Value("${shop.products.mmap-store.name-heap-size:268435456}") int nameHeapSize) {
+        if (enabled && HEADER_SIZE + (long) maxProducts * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalStateException("The product store holds at most "
+                    + (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE + " products");
+        }
+        this.productRepository = productRepository;
+        this.productTombstoneRepository = productTombstoneRepository;
+        this.catalogEpochRepository = catalogEpochRepository;
+        this.changeVersions = changeVersions;
+        this.primaryReads = ReadOnlyRoutingDataSource.primaryReads(transactionManager);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxProducts = maxProducts;
+        this.nameHeapSize = nameHeapSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            opening = true;
+        }
+        long started = System.nanoTime();
+        Files.createDirectories(directory);
+        Path recordsFile = directory.resolve("products.dat");
+        Path namesFile = directory.resolve("names.dat");
+        long epoch = transactionTemplate.execute(status -> catalogEpochRepository.findById(CatalogEpoch.ID)
+                .orElseGet(() -> catalogEpochRepository.save(CatalogEpoch.random()))
+                .getDatabaseId());
+        boolean reuse = isReusable(recordsFile, namesFile, epoch);
+        records = map(recordsFile, HEADER_SIZE + maxProducts * RECORD_SIZE, reuse);
+        names = map(namesFile, nameHeapSize, reuse);
+
+        if (reuse) {
+            catchUp();
+        } else {
+            populate(epoch);
+        }
+        // Marked clean again on shutdown; a crash in between makes the next start rebuild the files
+        records.putInt(CLEAN_AT, 0);
+        records.force(0, HEADER_SIZE);
+        List<Long> changed;
+        synchronized (this) {
+            ready = true;
+            opening = false;
+            changed = new ArrayList<>(changedWhileOpening);
+            changedWhileOpening.clear();
+        }
+        // Read after every change recorded above committed, so none of them is overwritten by an older read
+        if (!changed.isEmpty()) {
+            reload(changed);
+        }
+        log.info("{} product store in {} at version {} in {} ms", reuse ? "Reopened" : "Rebuilt", directory,
+                records.getLong(VERSION_AT), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!ready) {
+            return;
+        }
+        ready = false;
+        names.force();
+        records.force();
+        records.putInt(CLEAN_AT, 1);
+        records.force(0, HEADER_SIZE);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the stored product, or null when it is not in the store (yet).
+     */
+    public ProductDTO findById(long id) {
+        return inCapacity(id) ? read(recordAt(id)) : null;
+    }
+
+    public List<ProductDTO> findAll() {
+        long highestId = records.getLong(HIGHEST_ID_AT);
+        List<ProductDTO> products = new ArrayList<>();
+        for (long id = 1; id <= highestId; id++) {
+            ProductDTO product = read(recordAt(id));
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onStockChanged(ProductStockChangedEvent event) {
+        if (!ready) {
+            if (opening) {
+                changedWhileOpening.add(event.productId());
+            }
+            return;
+        }
+        if (!inCapacity(event.productId())) {
+            return;
+        }
+        int base = recordAt(event.productId());
+        if (records.getLong(base + ID) == event.productId()) {
+            long stamp = beginWrite(base);
+            records.putInt(base + STOCK, event.stockQuantity());
+            endWrite(base, stamp);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        synchronized (this) {
+            if (!ready) {
+                if (opening) {
+                    changedWhileOpening.addAll(event.productIds());
+                }
+                return;
+            }
+        }
+        reload(event.productIds());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        if (!ready) {
+            return;
+        }
+        List<Product> products = primaryReads.execute(status ->
+                productRepository.findChanged(event.changeVersion() - 1, event.changeVersion()));
+        synchronized (this) {
+            products.forEach(this::write);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shop.products.mmap-store.sync-interval:5000}")
+    public void sync() {
+        if (ready) {
+            catchUp();
+        }
+    }
+
+    /**
+     * Reloads the given products from the primary; products no longer there were deleted.
+     */
+    private void reload(Collection<Long> productIds) {
+        List<Product> products = primaryReads.execute(status -> productRepository.findAllById(productIds));
+        synchronized (this) {
+            Set<Long> deleted = new HashSet<>(productIds);
+            for (Product product : products) {
+                write(product);
+                deleted.remove(product.getId());
+            }
+            deleted.forEach(this::remove);
+        }
+    }
+
+    /**
+     * Applies every change after the stored version up to the committed watermark.
+     */
+    private void catchUp() {
+        long since = records.getLong(VERSION_AT);
+        long upTo = changeVersions.committedWatermark();
+        if (upTo <= since) {
+            return;
+        }
+        primaryReads.executeWithoutResult(status -> {
+            List<Product> changed = productRepository.findChanged(since, upTo);
+            List<Long> deleted = productTombstoneRepository.findDeletedProductIds(since, upTo);
+            synchronized (this) {
+                changed.forEach(this::write);
+                deleted.forEach(this::remove);
+                records.putLong(VERSION_AT, upTo);
+            }
+        });
+    }
+
+    private void populate(long epoch) {
+        records.putLong(MAGIC_AT, MAGIC);
+        records.putInt(FORMAT_AT, FORMAT);
+        records.putLong(CAPACITY_AT, maxProducts);
+        records.putLong(EPOCH_AT, epoch);
+
+        long upTo = changeVersions.committedWatermark();
+        long afterId = 0;
+        List<Product> page;
+        do {
+            long from = afterId;
+            page = primaryReads.execute(status -> productRepository.findPageAfter(from, PageRequest.of(0, PAGE_SIZE)));
+            synchronized (this) {
+                page.forEach(this::write);
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        records.putLong(VERSION_AT, upTo);
+    }
+
+    private boolean isReusable(Path recordsFile, Path namesFile, long epoch) throws IOException {
+        if (!Files.exists(recordsFile) || !Files.exists(namesFile)
+                || Files.size(recordsFile) != HEADER_SIZE + (long) maxProducts * RECORD_SIZE
+                || Files.size(namesFile) != nameHeapSize) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+        try (FileChannel channel = FileChannel.open(recordsFile, StandardOpenOption.READ)) {
+            channel.read(header, 0);
+        }
+        return header.getLong(MAGIC_AT) == MAGIC
+                && header.getInt(FORMAT_AT) == FORMAT
+                && header.getInt(CLEAN_AT) == 1
+                && header.getLong(CAPACITY_AT) == maxProducts
+                && header.getLong(NAMES_END_AT) <= nameHeapSize / 2
+                // A recreated database restarts its versions, and holds none of the stored changes
+                && header.getLong(EPOCH_AT) == epoch
+                && header.getLong(VERSION_AT) <= changeVersions.committedWatermark();
+    }
+
+    private static MappedByteBuffer map(Path file, long size, boolean keep) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (!keep) {
+                // Mapping extends the file again, with zeros, that is with empty records
+                channel.truncate(0);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+            return buffer;
+        }
+    }
+
+    private boolean inCapacity(long id) {
+        return id >= 1 && id <= maxProducts;
+    }
+
+    private static int recordAt(long id) {
+        return HEADER_SIZE + (int) (id - 1) * RECORD_SIZE;
+    }
+
+    private ProductDTO read(int base) {
+        while (true) {
+            long stamp = (long) STAMPS.getAcquire(records, base + STAMP);
+            if ((stamp & 1) == 0) {
+                long id = records.getLong(base + ID);
+                long price = records.getLong(base + PRICE);
+                int stock = records.getInt(base + STOCK);
+                int nameLength = records.getInt(base + NAME_LENGTH);
+                int nameOffset = records.getInt(base + NAME_OFFSET);
+                // A torn read may see any length; the stamp check below discards it
+                byte[] name = nameLength >= 0 && nameOffset >= 0 && nameOffset <= nameHeapSize - nameLength
+                        ? new byte[nameLength]
+                        : null;
+                if (name != null) {
+                    names.get(nameOffset, name);
+                }
+                VarHandle.loadLoadFence();
+                if (name != null && (long) STAMPS.getAcquire(records, base + STAMP) == stamp) {
+                    return id == 0 ? null : ProductDTO.builder()
+                            .id(id)
+                            .name(new String(name, StandardCharsets.UTF_8))
+                            .price(BigDecimal.valueOf(price, SCALE))
+                            .stockQuantity(stock)
+                            .build();
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void write(Product product) {
+        long id = product.getId();
+        if (!inCapacity(id)) {
+            return;
+        }
+        int base = recordAt(id);
+        byte[] name = product.getName().getBytes(StandardCharsets.UTF_8);
+        int nameOffset;
+        // Most changes are stock and price changes, which must not grow the name heap
+        if (records.getLong(base + ID) == id && hasName(base, name)) {
+            nameOffset = records.getInt(base + NAME_OFFSET);
+        } else {
+            nameOffset = appendName(name);
+            if (nameOffset < 0) {
+                return;
+            }
+        }
+
+        long stamp = beginWrite(base);
+        records.putLong(base + ID, id);
+        records.putLong(base + PRICE, product.getPrice().minorUnits());
+        records.putInt(base + STOCK, product.getStockQuantity());
+        records.putInt(base + NAME_LENGTH, name.length);
+        records.putInt(base + NAME_OFFSET, nameOffset);
+        endWrite(base, stamp);
+        if (id > records.getLong(HIGHEST_ID_AT)) {
+            records.putLong(HIGHEST_ID_AT, id);
+        }
+    }
+
+    private void remove(Long id) {
+        if (!inCapacity(id)) {
+            return;
+        }
+        int base = recordAt(id);
+        long stamp = beginWrite(base);
+        records.putLong(base + ID, 0);
+        endWrite(base, stamp);
+    }
+
+    private boolean hasName(int base, byte[] name) {
+        if (records.getInt(base + NAME_LENGTH) != name.length) {
+            return false;
+        }
+        byte[] stored = new byte[name.length];
+        names.get(records.getInt(base + NAME_OFFSET), stored);
+        return Arrays.equals(stored, name);
+    }
+
+    private int appendName(byte[] name) {
+        long end = records.getLong(NAMES_END_AT);
+        if (end + name.length > nameHeapSize) {
+            // Left unclean, so the next start rebuilds the files with a compact name heap
+            log.warn("Name heap of the product store is full; serving products from the database until restart");
+            ready = false;
+            return -1;
+        }
+        names.put((int) end, name);
+        records.putLong(NAMES_END_AT, end + name.length);
+        return (int) end;
+    }
+
+    private long beginWrite(int base) {
+        long stamp = (long) STAMPS.getAcquire(records, base + STAMP);
+        STAMPS.setRelease(records, base + STAMP, stamp + 1);
+        VarHandle.storeStoreFence();
+        return stamp + 2;
+    }
+
+    private void endWrite(int base, long stamp) {
+        STAMPS.setRelease(records, base + STAMP, stamp);
+    }
+}
@@ -0,0 +1,78 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.repository.ProductRepository;
+import cz.burdemar.products.products.repository.ProductTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Hands out the change versions stamped on products and tombstones. Every transaction that
+ * changes products gets one version, shared by all rows it writes, so a reader sees either all
+ * of a transaction's changes or none of them.
+ * <p>
+ * Versions are allocated before their transaction commits, so a higher version may become
+ * visible before a lower one. {@link #committedWatermark()} therefore stops just below the
+ * oldest version still in flight: every change up to it is committed or rolled back, and a
+ * client that synced up to it cannot miss a later commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductChangeVersions {
+    private final ProductRepository productRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long lastAllocated;
+
+    @PostConstruct
+    public synchronized void loadLastVersion() {
+        lastAllocated = Math.max(Objects.requireNonNullElse(productRepository.findMaxChangeVersion(), 0L),
+                Objects.requireNonNullElse(productTombstoneRepository.findMaxChangeVersion(), 0L));
+    }
+
+    /**
+     * Returns the change version of the current transaction, allocating it on first use.
+     */
+    public long current() {
+        Long version = (Long) TransactionSynchronizationManager.getResource(this);
+        if (version != null) {
+            return version;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Products can only be changed inside a transaction");
+        }
+
+        long allocated = allocate();
+        TransactionSynchronizationManager.bindResource(this, allocated);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ProductChangeVersions.this);
+                complete(allocated);
+            }
+        });
+        return allocated;
+    }
+
+    /**
+     * The highest version up to which all changes are settled.
+     */
+    public synchronized long committedWatermark() {
+        return inFlight.isEmpty() ? lastAllocated : inFlight.first() - 1;
+    }
+
+    private synchronized long allocate() {
+        inFlight.add(++lastAllocated);
+        return lastAllocated;
+    }
+
+    private synchronized void complete(long version) {
+        inFlight.remove(version);
+    }
+}
@@ -0,0 +1,340 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.datasource.ReadOnlyRoutingDataSource;
+import cz.burdemar.products.products.event.ProductNameChangedEvent;
+import cz.burdemar.products.products.event.ProductsImportedEvent;
+import cz.burdemar.products.products.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index from the words of product names to product IDs, for type-ahead search.
+ * Words are lower-cased and stripped of diacritics, so a query can be typed without accents.
+ * <p>
+ * Words are kept in a sorted map, so the products whose names contain a word starting with a
+ * prefix are one range of it. Each word maps to a sorted set of product IDs, so the products
+ * containing several words are found by leapfrogging through the sets, which only costs as much
+ * as the rarest of the words.
+ * <p>
+ * The index is built once the application has started, after any startup data was loaded, and
+ * then follows committed product changes. Listeners of different transactions may run in any
+ * order, so they only queue the changed products; one thread at a time reads their names back
+ * from the primary and applies them, and the others return at once. A product changed again
+ * meanwhile is queued again, so the last name applied always reflects the last commit. Only
+ * applying holds the lock, and searches take none.
+ */
+@Component
+@Slf4j
+public class ProductNameIndex {
+    private static final int BUILD_PAGE_SIZE = 10_000;
+    private static final int READ_CHUNK_SIZE = 1000;
+    // Up to this many words starting with the last, unfinished word of a query are leapfrogged
+    // through like the other words; more only start with a short prefix, which most candidates match
+    private static final int MAX_PREFIX_WORDS = 64;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate primaryReads;
+
+    private final ConcurrentSkipListMap<String, NavigableSet<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, String[]> wordsById = new ConcurrentHashMap<>();
+    private final Set<Long> pendingProducts = ConcurrentHashMap.newKeySet();
+    private final Queue<Long> pendingImports = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock applying = new ReentrantLock();
+
+    public ProductNameIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.primaryReads = ReadOnlyRoutingDataSource.primaryReads(transactionManager);
+    }
+
+    /**
+     * Loads the catalog page by page, indexing each page in parallel. Each page is read and
+     * indexed under the lock, so a change applied between pages is never overwritten by an older
+     * read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long started = System.nanoTime();
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            synchronized (this) {
+                page = productRepository.findIdsAndNamesAfter(afterId, PageRequest.of(0, BUILD_PAGE_SIZE));
+                page.parallelStream().forEach(row -> put((Long) row[0], (String) row[1]));
+            }
+            if (!page.isEmpty()) {
+                afterId = (Long) page.get(page.size() - 1)[0];
+            }
+        } while (page.size() == BUILD_PAGE_SIZE);
+        log.info("Indexed names of {} products in {} ms", wordsById.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Re-indexes the product under its current name on the primary, or drops it when deleted.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductNameChanged(ProductNameChangedEvent event) {
+        pendingProducts.add(event.productId());
+        applyPending();
+    }
+
+    /**
+     * Indexes an import batch. Reads from the primary, which a lagging replica could miss.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        pendingImports.add(event.changeVersion());
+        applyPending();
+    }
+
+    /**
+     * Applies the queued changes unless another thread already does; it then picks these up too.
+     * Checked again after unlocking, so nothing queued just before is left behind.
+     */
+    private void applyPending() {
+        while ((!pendingProducts.isEmpty() || !pendingImports.isEmpty()) && applying.tryLock()) {
+            try {
+                Long changeVersion;
+                while ((changeVersion = pendingImports.peek()) != null) {
+                    long batch = changeVersion;
+                    List<Object[]> rows = primaryReads.execute(status -> productRepository.findIdsAndNamesByChangeVersion(batch));
+                    synchronized (this) {
+                        rows.forEach(row -> put((Long) row[0], (String) row[1]));
+                    }
+                    pendingImports.remove();
+                }
+                applyPendingProducts();
+            } finally {
+                applying.unlock();
+            }
+        }
+    }
+
+    private void applyPendingProducts() {
+        // Removed before the read, so a change committed after the read stays queued for the next round
+        List<Long> productIds = new ArrayList<>();
+        for (Iterator<Long> pending = pendingProducts.iterator(); pending.hasNext(); ) {
+            productIds.add(pending.next());
+            pending.remove();
+        }
+        for (int from = 0; from < productIds.size(); from += READ_CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + READ_CHUNK_SIZE, productIds.size()));
+            Map<Long, String> names = new HashMap<>();
+            try {
+                primaryReads.executeWithoutResult(status -> productRepository.findIdsAndNamesByIds(chunk)
+                        .forEach(row -> names.put((Long) row[0], (String) row[1])));
+            } catch (RuntimeException e) {
+                pendingProducts.addAll(productIds.subList(from, productIds.size()));
+                throw e;
+            }
+            synchronized (this) {
+                for (Long id : chunk) {
+                    String name = names.get(id);
+                    String[] previous = wordsById.get(id);
+                    if (name == null) {
+                        remove(id);
+                    } else {
+                        put(id, name);
+                    }
+                    if (previous != null) {
+                        dropEmptyPostings(previous);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} IDs of products with a name containing all words of the query,
+     * the last one possibly unfinished. With a single word, products come in the alphabetical
+     * order of the word they matched; with more, in ID order.
+     */
+    public List<Long> search(String query, int limit) {
+        String[] words = tokenize(query);
+        if (words.length == 0) {
+            return List.of();
+        }
+        String prefix = words[words.length - 1];
+        if (words.length == 1) {
+            return searchPrefix(prefix, limit);
+        }
+
+        List<Function<Long, Long>> ceilings = new ArrayList<>(words.length);
+        for (String word : new LinkedHashSet<>(Arrays.asList(words).subList(0, words.length - 1))) {
+            NavigableSet<Long> ids = postings.get(word);
+            if (ids == null) {
+                return List.of();
+            }
+            ceilings.add(ids::ceiling);
+        }
+
+        List<NavigableSet<Long>> prefixSets = new ArrayList<>();
+        for (NavigableSet<Long> ids : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            prefixSets.add(ids);
+            if (prefixSets.size() > MAX_PREFIX_WORDS) {
+                break;
+            }
+        }
+        if (prefixSets.isEmpty()) {
+            return List.of();
+        }
+        boolean checkPrefix = prefixSets.size() > MAX_PREFIX_WORDS;
+        if (!checkPrefix) {
+            ceilings.add(id -> ceilingOfAny(prefixSets, id));
+        }
+        return intersect(ceilings, checkPrefix ? prefix : null, limit);
+    }
+
+    /**
+     * Splits a text into lower-case words without diacritics, each one once.
+     */
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return SEPARATORS.splitAsStream(normalized)
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    // Writers hold the lock; only a build page indexes with several threads, which may add
+    // postings concurrently but never drop a word's set, so no addition can land in a dropped set
+    private void put(Long id, String name) {
+        String[] words = tokenize(name);
+        String[] previous = wordsById.put(id, words);
+        if (previous != null) {
+            Set<String> kept = Set.of(words);
+            for (String word : previous) {
+                if (!kept.contains(word)) {
+                    removePosting(word, id);
+                }
+            }
+        }
+        for (String word : words) {
+            postings.computeIfAbsent(word, key -> new ConcurrentSkipListSet<>()).add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        String[] previous = wordsById.remove(id);
+        if (previous != null) {
+            for (String word : previous) {
+                removePosting(word, id);
+            }
+        }
+    }
+
+    private void removePosting(String word, Long id) {
+        NavigableSet<Long> ids = postings.get(word);
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+
+    // Only called by a single writer, while nothing can add to the sets it drops
+    private void dropEmptyPostings(String[] words) {
+        for (String word : words) {
+            NavigableSet<Long> ids = postings.get(word);
+            if (ids != null && ids.isEmpty()) {
+                postings.remove(word, ids);
+            }
+        }
+    }
+
+    private List<Long> searchPrefix(String prefix, int limit) {
+        Set<Long> found = new LinkedHashSet<>();
+        for (NavigableSet<Long> ids : postings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            for (Long id : ids) {
+                found.add(id);
+                if (found.size() == limit) {
+                    return new ArrayList<>(found);
+                }
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Walks the sets in turn, each time skipping to the first ID not below the current candidate,
+     * until all sets agree on it. With a prefix, candidates must also have a word starting with it.
+     */
+    private List<Long> intersect(List<Function<Long, Long>> ceilings, String prefix, int limit) {
+        List<Long> found = new ArrayList<>();
+        long candidate = Long.MIN_VALUE;
+        int agreeing = 0;
+        for (int i = 0; found.size() < limit; i = (i + 1) % ceilings.size()) {
+            Long next = ceilings.get(i).apply(candidate);
+            if (next == null) {
+                break;
+            }
+            if (next != candidate) {
+                candidate = next;
+                agreeing = 0;
+            }
+            if (++agreeing == ceilings.size()) {
+                if (prefix == null || hasWordStartingWith(candidate, prefix)) {
+                    found.add(candidate);
+                }
+                candidate++;
+                agreeing = 0;
+            }
+        }
+        return found;
+    }
+
+    private static Long ceilingOfAny(List<NavigableSet<Long>> sets, long id) {
+        Long lowest = null;
+        for (NavigableSet<Long> ids : sets) {
+            Long next = ids.ceiling(id);
+            if (next != null && (lowest == null || next < lowest)) {
+                lowest = next;
+            }
+        }
+        return lowest;
+    }
+
+    private boolean hasWordStartingWith(long id, String prefix) {
+        String[] words = wordsById.get(id);
+        if (words == null) {
+            return false;
+        }
+        for (String word : words) {
+            if (word.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,290 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.datasource.ReadOnlyRoutingDataSource;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
+import cz.burdemar.products.products.event.ProductsImportedEvent;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Columnar in-memory copy of the price and stock of every product, for filtering the catalog by
+ * price range and availability and paging it by price without a database query.
+ * <p>
+ * Rows are held in parallel primitive arrays sorted by price (in minor units) and then id, so a
+ * price range is found by two binary searches and is already in price order. Stock changes with
+ * every order and is updated in place. Prices change rarely, and only from admin operations,
+ * so a price change, new product or deletion builds new arrays by merging the changed rows
+ * into the old ones, and swaps them in for readers in one write.
+ * <p>
+ * The index is built once the application has started, after any startup data was loaded.
+ * Changed products are collected and read back from the primary once per interval, so one merge
+ * covers all admin changes of the interval. Rows whose price did not change, such as those of a
+ * bulk restock, are updated in place and need no merge.
+ * <p>
+ * Stock events are applied in place at once and take no lock, but listeners of different
+ * transactions may run in any order, so the product is also read back on the next merge. A
+ * stale quantity, or one written to columns a merge is replacing, thus lasts one interval at most.
+ * Only the merge and the build swap columns; reads happen outside the lock.
+ */
+@Component
+@Slf4j
+public class ProductPriceIndex {
+    private static final int BUILD_PAGE_SIZE = 10_000;
+    private static final int READ_CHUNK_SIZE = 1000;
+    private static final Comparator<Row> PRICE_ORDER = Comparator.comparingLong(Row::price).thenComparingLong(Row::id);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate primaryReads;
+
+    private volatile Columns columns = Columns.of(new Row[0]);
+    // Products to read back on the next merge; also collects those changed while building
+    private final Set<Long> pendingProducts = ConcurrentHashMap.newKeySet();
+    private volatile boolean built;
+
+    public ProductPriceIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.primaryReads = ReadOnlyRoutingDataSource.primaryReads(transactionManager);
+    }
+
+    /**
+     * Loads the catalog without holding the lock. Changes committed meanwhile stay pending until
+     * the columns are swapped in, and are then read back over the rows the build loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        long started = System.nanoTime();
+        List<Row> rows = new ArrayList<>();
+        long afterId = 0;
+        List<Object[]> page;
+        do {
+            page = productRepository.findPricesAndStockAfter(afterId, PageRequest.of(0, BUILD_PAGE_SIZE));
+            page.forEach(row -> rows.add(Row.of(row)));
+            if (!page.isEmpty()) {
+                afterId = (Long) page.get(page.size() - 1)[0];
+            }
+        } while (page.size() == BUILD_PAGE_SIZE);
+
+        Row[] sorted = rows.toArray(Row[]::new);
+        Arrays.parallelSort(sorted, PRICE_ORDER);
+        synchronized (this) {
+            columns = Columns.of(sorted);
+            built = true;
+        }
+        log.info("Indexed prices of {} products in {} ms", sorted.length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        Columns current = columns;
+        int row = current.rowOf(event.productId());
+        if (row >= 0) {
+            current.stock.set(row, event.stockQuantity());
+        }
+        // The quantity may be older than one already applied; the merge reads the committed one
+        pendingProducts.add(event.productId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        pendingProducts.addAll(event.productIds());
+    }
+
+    /**
+     * Queues the products of an import batch for the next merge. Reads from the primary, which a
+     * lagging replica could miss.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsImported(ProductsImportedEvent event) {
+        primaryReads.executeWithoutResult(status -> productRepository.findPricesAndStockByChangeVersion(event.changeVersion())
+                .forEach(row -> pendingProducts.add((Long) row[0])));
+    }
+
+    /**
+     * Reads the pending products back from the primary and applies them; products no longer
+     * there were deleted. Only the swap of the columns holds the lock.
+     */
+    @Scheduled(fixedDelayString = "${shop.products.price-index.merge-interval:1000}")
+    public void applyPendingChanges() {
+        if (!built || pendingProducts.isEmpty()) {
+            return;
+        }
+        // Removed before the read, so a change committed after the read stays pending for the next run
+        List<Long> productIds = new ArrayList<>();
+        for (Iterator<Long> pending = pendingProducts.iterator(); pending.hasNext(); ) {
+            productIds.add(pending.next());
+            pending.remove();
+        }
+        Map<Long, Row> changes = new HashMap<>();
+        try {
+            for (int from = 0; from < productIds.size(); from += READ_CHUNK_SIZE) {
+                List<Long> chunk = productIds.subList(from, Math.min(from + READ_CHUNK_SIZE, productIds.size()));
+                chunk.forEach(id -> changes.put(id, null));
+                primaryReads.executeWithoutResult(status -> productRepository.findPricesAndStockByIds(chunk)
+                        .forEach(row -> changes.put((Long) row[0], Row.of(row))));
+            }
+        } catch (RuntimeException e) {
+            pendingProducts.addAll(productIds);
+            throw e;
+        }
+        synchronized (this) {
+            apply(changes);
+        }
+    }
+
+    /**
+     * Returns the ids of the products priced within the given bounds (each optional and
+     * inclusive, in minor units), optionally only those in stock, ordered by price and then id,
+     * skipping the first {@code offset} matches.
+     */
+    public List<Long> filter(Long minPrice, Long maxPrice, boolean inStock, boolean descending, int offset, int limit) {
+        Columns current = columns;
+        int from = minPrice == null ? 0 : current.firstRowPricedAtLeast(minPrice);
+        int to = maxPrice == null || maxPrice == Long.MAX_VALUE
+                ? current.size()
+                : current.firstRowPricedAtLeast(maxPrice + 1);
+
+        List<Long> ids = new ArrayList<>(Math.min(limit, Math.max(0, to - from)));
+        int skipped = 0;
+        for (int i = 0; i < to - from && ids.size() < limit; i++) {
+            int row = descending ? to - 1 - i : from + i;
+            if (inStock && current.stock.get(row) <= 0) {
+                continue;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            ids.add(current.ids[row]);
+        }
+        return ids;
+    }
+
+    /**
+     * Replaces the rows of the given products; a null row removes the product. Rows that keep
+     * their price only have their stock set; the rest are merged into new columns.
+     */
+    private void apply(Map<Long, Row> changes) {
+        Columns old = columns;
+        Map<Long, Row> moved = new HashMap<>();
+        changes.forEach((id, change) -> {
+            int row = old.rowOf(id);
+            if (change != null && row >= 0 && old.prices[row] == change.price()) {
+                old.stock.set(row, change.stock());
+            } else if (change != null || row >= 0) {
+                moved.put(id, change);
+            }
+        });
+        if (moved.isEmpty()) {
+            return;
+        }
+        Row[] added = moved.values().stream()
+                .filter(row -> row != null)
+                .sorted(PRICE_ORDER)
+                .toArray(Row[]::new);
+
+        // Both inputs are in price order, so one merge pass keeps the result in price order
+        List<Row> merged = new ArrayList<>(old.size() + added.length);
+        int next = 0;
+        for (int row = 0; row < old.size(); row++) {
+            if (moved.containsKey(old.ids[row])) {
+                continue;
+            }
+            // A stock update landing after this read is pending again, and read back on the next merge
+            Row kept = new Row(old.ids[row], old.prices[row], old.stock.get(row));
+            while (next < added.length && PRICE_ORDER.compare(added[next], kept) < 0) {
+                merged.add(added[next++]);
+            }
+            merged.add(kept);
+        }
+        while (next < added.length) {
+            merged.add(added[next++]);
+        }
+        columns = Columns.of(merged.toArray(Row[]::new));
+    }
+
+    record Row(long id, long price, int stock) {
+        static Row of(Object[] columns) {
+            return new Row((Long) columns[0], ((Money) columns[1]).minorUnits(), (Integer) columns[2]);
+        }
+    }
+
+    private static final class Columns {
+        // Parallel columns, sorted by price and then id
+        private final long[] prices;
+        private final long[] ids;
+        private final AtomicIntegerArray stock;
+        // Ids in ascending order and the row each one is in, to find a product's row
+        private final long[] sortedIds;
+        private final int[] rowOfSortedId;
+
+        private Columns(long[] prices, long[] ids, AtomicIntegerArray stock) {
+            this.prices = prices;
+            this.ids = ids;
+            this.stock = stock;
+            this.sortedIds = ids.clone();
+            Arrays.parallelSort(sortedIds);
+            this.rowOfSortedId = new int[ids.length];
+            for (int row = 0; row < ids.length; row++) {
+                rowOfSortedId[Arrays.binarySearch(sortedIds, ids[row])] = row;
+            }
+        }
+
+        static Columns of(Row[] rows) {
+            long[] prices = new long[rows.length];
+            long[] ids = new long[rows.length];
+            AtomicIntegerArray stock = new AtomicIntegerArray(rows.length);
+            for (int row = 0; row < rows.length; row++) {
+                prices[row] = rows[row].price();
+                ids[row] = rows[row].id();
+                stock.set(row, rows[row].stock());
+            }
+            return new Columns(prices, ids, stock);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        int rowOf(long id) {
+            int index = Arrays.binarySearch(sortedIds, id);
+            return index < 0 ? -1 : rowOfSortedId[index];
+        }
+
+        int firstRowPricedAtLeast(long price) {
+            int low = 0;
+            int high = prices.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (prices[middle] < price) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
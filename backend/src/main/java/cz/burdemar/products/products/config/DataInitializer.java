@@ -1,5 +1,7 @@
 package cz.burdemar.products.products.config;
 
+import cz.burdemar.products.products.catalog.ProductChangeVersions;
+import cz.burdemar.products.products.model.Money;
 import cz.burdemar.products.products.model.Product;
 import cz.burdemar.products.products.model.User;
 import cz.burdemar.products.products.model.UserRole;
@@ -13,6 +15,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
@@ -24,6 +28,8 @@ import java.util.List;
 public class DataInitializer {
 
     private final ProductRepository productRepository;
+    private final ProductChangeVersions changeVersions;
+    private final PlatformTransactionManager transactionManager;
 
     @Autowired
     private UserRepository userRepository;
@@ -55,32 +61,37 @@ public class DataInitializer {
                 List<Product> products = Arrays.asList(
                         Product.builder()
                                 .name("Laptop")
-                                .price(new BigDecimal("1299.99"))
+                                .price(Money.of(new BigDecimal("1299.99")))
                                 .stockQuantity(10)
                                 .build(),
                         Product.builder()
                                 .name("Smartphone")
-                                .price(new BigDecimal("799.99"))
+                                .price(Money.of(new BigDecimal("799.99")))
                                 .stockQuantity(20)
                                 .build(),
                         Product.builder()
                                 .name("Headphones")
-                                .price(new BigDecimal("199.99"))
+                                .price(Money.of(new BigDecimal("199.99")))
                                 .stockQuantity(30)
                                 .build(),
                         Product.builder()
                                 .name("Tablet")
-                                .price(new BigDecimal("499.99"))
+                                .price(Money.of(new BigDecimal("499.99")))
                                 .stockQuantity(15)
                                 .build(),
                         Product.builder()
                                 .name("Smartwatch")
-                                .price(new BigDecimal("299.99"))
+                                .price(Money.of(new BigDecimal("299.99")))
                                 .stockQuantity(25)
                                 .build()
                 );
 
-                productRepository.saveAll(products);
+                // Stamped with a change version like any other change, so catalog syncs pick them up
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    long changeVersion = changeVersions.current();
+                    products.forEach(product -> product.setChangeVersion(changeVersion));
+                    productRepository.saveAll(products);
+                });
                 log.info("Sample products initialized!");
             }
         };
@@ -0,0 +1,67 @@
+package cz.burdemar.products.products.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import cz.burdemar.products.products.datasource.ReadOnlyRoutingDataSource;
+import cz.burdemar.products.products.datasource.ReplicaLagMonitor;
+import cz.burdemar.products.products.metrics.SqlRecordingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits the primary into a write pool and a pool for read-only transactions
+ * ({@code @Transactional(readOnly = true)}), which use the replica instead while
+ * {@link ReplicaDataSourceConfig} is enabled and the replica is fresh enough. Catalog reads can
+ * then never hold the connections that the write permits of the concurrency limiter are sized to,
+ * so payments queue for a permit by priority and not in the pool behind reads. Reads that must see
+ * the latest commit use {@link ReadOnlyRoutingDataSource#primaryReads}, which stays on the
+ * primary's read pool. Statements on any of the pools are counted per request by
+ * {@link SqlRecordingDataSource}.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("shop.datasource.reads.hikari")
+    public HikariDataSource primaryReadDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary-reads");
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("primaryReadDataSource") DataSource primaryReadDataSource,
+                                 @Qualifier("replicaDataSource") ObjectProvider<DataSource> replicaDataSource,
+                                 ObjectProvider<ReplicaLagMonitor> replicaLagMonitor,
+                                 @Value("${shop.sql-accounting.enabled:true}") boolean sqlAccounting) {
+        DataSource replica = replicaDataSource.getIfAvailable();
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+        DataSource routing = replica == null || monitor == null
+                ? new ReadOnlyRoutingDataSource(primaryDataSource, primaryReadDataSource)
+                : new ReadOnlyRoutingDataSource(primaryDataSource, primaryReadDataSource, replica,
+                        monitor::isReplicaUsable);
+        return new LazyConnectionDataSourceProxy(sqlAccounting ? new SqlRecordingDataSource(routing) : routing);
+    }
+}
@@ -0,0 +1,24 @@
+package cz.burdemar.products.products.config;
+
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.LocalDateTime;
+
+@Configuration
+public class MetricsConfig {
+
+    // Evaluated on scrape only, backed by the (status, expiry_time) index
+    @Bean
+    public MeterBinder orderExpiryBacklogMetrics(OrderRepository orderRepository) {
+        return registry -> Gauge.builder("shop.orders.expiry.backlog", orderRepository,
+                        repository -> repository.countByStatusAndExpiryTimeBefore(
+                                Order.OrderStatus.PENDING, LocalDateTime.now()))
+                .description("PENDING orders whose reservation has already expired")
+                .register(registry);
+    }
+}
@@ -0,0 +1,36 @@
+package cz.burdemar.products.products.config;
+
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.dto.ProductStockDTO;
+import cz.burdemar.products.products.sse.SseBroadcaster;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class SseConfig {
+
+    @Value("${shop.sse.buffer-size:32}")
+    private int bufferSize;
+
+    @Value("${shop.sse.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${shop.sse.write-timeout:10s}")
+    private Duration writeTimeout;
+
+    @Value("${shop.sse.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
+
+    @Bean
+    public SseBroadcaster<Long, OrderDTO> orderEventBroadcaster() {
+        return new SseBroadcaster<>("order", bufferSize, timeout, writeTimeout, heartbeatInterval);
+    }
+
+    @Bean
+    public SseBroadcaster<Long, ProductStockDTO> stockEventBroadcaster() {
+        return new SseBroadcaster<>("stock", bufferSize, timeout, writeTimeout, heartbeatInterval);
+    }
+}
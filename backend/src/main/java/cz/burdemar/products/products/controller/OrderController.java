@@ -1,16 +1,28 @@
 package cz.burdemar.products.products.controller;
 
+import cz.burdemar.products.products.cache.TerminalOrderCache;
+import cz.burdemar.products.products.dto.BulkOrderRequest;
+import cz.burdemar.products.products.dto.BulkOrderResult;
 import cz.burdemar.products.products.dto.CreateOrderRequest;
 import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.dto.OrderSearchCriteria;
+import cz.burdemar.products.products.dto.OrderSearchResult;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.service.BulkOrderService;
+import cz.burdemar.products.products.service.IdempotencyService;
+import cz.burdemar.products.products.service.OrderEventStreamService;
 import cz.burdemar.products.products.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -20,12 +32,23 @@ import java.util.List;
 @Tag(name = "Order", description = "Order management APIs")
 public class OrderController {
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
+    private final OrderEventStreamService orderEventStreamService;
+    private final TerminalOrderCache terminalOrderCache;
+    private final BulkOrderService bulkOrderService;
 
     @GetMapping
-    @Operation(summary = "Get all orders", description = "Retrieve a list of all orders with optional filtering")
+    @Operation(summary = "Get all orders", description = "Retrieve a list of all orders. Closed orders moved to the archive are only included with includeArchived=true")
     @ApiResponse(responseCode = "200", description = "Orders retrieved successfully")
-    public ResponseEntity<List<OrderDTO>> getAllOrders() {
-        return ResponseEntity.ok(orderService.getAllOrders());
+    public ResponseEntity<List<OrderDTO>> getAllOrders(@RequestParam(defaultValue = "false") boolean includeArchived) {
+        return ResponseEntity.ok(orderService.getAllOrders(includeArchived));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search orders", description = "Filter orders by status, creation time window, total amount range and product. Pages newest first using the returned nextCursor. Archived orders are only searched with includeArchived=true")
+    @ApiResponse(responseCode = "200", description = "Matching orders retrieved successfully")
+    public ResponseEntity<OrderSearchResult> searchOrders(OrderSearchCriteria criteria) {
+        return ResponseEntity.ok(orderService.searchOrders(criteria));
     }
 
     @PostMapping
@@ -33,17 +56,55 @@ public class OrderController {
     @ApiResponse(responseCode = "201", description = "Order created successfully")
     @ApiResponse(responseCode = "400", description = "Invalid input or insufficient stock")
     @ApiResponse(responseCode = "404", description = "Product not found")
-    public ResponseEntity<OrderDTO> createOrder(@Valid @RequestBody CreateOrderRequest request) {
-        OrderDTO createdOrder = orderService.createOrder(request);
-        return new ResponseEntity<>(createdOrder, HttpStatus.CREATED);
+    @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still being processed")
+    @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used for a different request")
+    public ResponseEntity<OrderDTO> createOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CreateOrderRequest request) {
+        String scope = idempotencyKey == null ? null : idempotencyService.scope("POST /api/orders", request);
+        return idempotencyService.execute(idempotencyKey, scope, HttpStatus.CREATED, OrderDTO.class,
+                () -> orderService.createOrder(request));
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get order by ID", description = "Retrieve a specific order by its ID")
+    @Operation(summary = "Get order by ID", description = "Retrieve a specific order by its ID. Paid, canceled and expired orders are immutable and served with a long-lived Cache-Control header")
     @ApiResponse(responseCode = "200", description = "Order found")
     @ApiResponse(responseCode = "404", description = "Order not found")
-    public ResponseEntity<OrderDTO> getOrderById(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.getOrderById(id));
+    public ResponseEntity<?> getOrderById(@PathVariable Long id,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (TerminalOrderCache.acceptsCachedJson(accept)) {
+            byte[] cached = terminalOrderCache.get(id);
+            if (cached != null) {
+                return ResponseEntity.ok()
+                        .cacheControl(TerminalOrderCache.CACHE_CONTROL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(cached);
+            }
+        }
+
+        OrderDTO order = orderService.getOrderById(id);
+        if (!TerminalOrderCache.isTerminal(order.getStatus())) {
+            return ResponseEntity.ok(order);
+        }
+        terminalOrderCache.put(order);
+        return ResponseEntity.ok()
+                .cacheControl(TerminalOrderCache.CACHE_CONTROL)
+                .body(order);
+    }
+
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream order events", description = "Server-Sent Events stream of the order's current state followed by its status changes")
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    @ApiResponse(responseCode = "404", description = "Order not found")
+    public SseEmitter streamOrderEvents(@PathVariable Long id) {
+        return orderEventStreamService.subscribe(id);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream all order events", description = "Server-Sent Events stream of status changes of all orders, optionally only those entering the given status")
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    public SseEmitter streamAllOrderEvents(@RequestParam(required = false) Order.OrderStatus status) {
+        return orderEventStreamService.subscribeAll(status);
     }
 
     @PostMapping("/{id}/pay")
@@ -51,8 +112,13 @@ public class OrderController {
     @ApiResponse(responseCode = "200", description = "Order paid successfully")
     @ApiResponse(responseCode = "400", description = "Invalid order status or expired order")
     @ApiResponse(responseCode = "404", description = "Order not found")
-    public ResponseEntity<OrderDTO> payOrder(@PathVariable Long id) {
-        return ResponseEntity.ok(orderService.payOrder(id));
+    @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still being processed")
+    @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used for a different request")
+    public ResponseEntity<OrderDTO> payOrder(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long id) {
+        return idempotencyService.execute(idempotencyKey, "POST /api/orders/" + id + "/pay", HttpStatus.OK,
+                OrderDTO.class, () -> orderService.payOrder(id));
     }
 
     @PostMapping("/{id}/cancel")
@@ -63,4 +129,20 @@ public class OrderController {
     public ResponseEntity<OrderDTO> cancelOrder(@PathVariable Long id) {
         return ResponseEntity.ok(orderService.cancelOrder(id));
     }
+
+    @PostMapping("/bulk/pay")
+    @Operation(summary = "Pay for orders in bulk", description = "Mark up to 1000 orders as paid, reporting the outcome per order")
+    @ApiResponse(responseCode = "200", description = "Orders processed; see the per-order outcomes")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    public ResponseEntity<BulkOrderResult> payOrders(@Valid @RequestBody BulkOrderRequest request) {
+        return ResponseEntity.ok(bulkOrderService.payOrders(request.getOrderIds()));
+    }
+
+    @PostMapping("/bulk/cancel")
+    @Operation(summary = "Cancel orders in bulk", description = "Cancel up to 1000 orders and release their reserved stock, reporting the outcome per order")
+    @ApiResponse(responseCode = "200", description = "Orders processed; see the per-order outcomes")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    public ResponseEntity<BulkOrderResult> cancelOrders(@Valid @RequestBody BulkOrderRequest request) {
+        return ResponseEntity.ok(bulkOrderService.cancelOrders(request.getOrderIds()));
+    }
 }
\ No newline at end of file
@@ -1,7 +1,18 @@
 package cz.burdemar.products.products.controller;
 
+import cz.burdemar.products.products.dto.ProductBatchRequest;
+import cz.burdemar.products.products.dto.ProductBatchResult;
+import cz.burdemar.products.products.dto.ProductBulkUpdateRequest;
+import cz.burdemar.products.products.dto.ProductBulkUpdateResult;
+import cz.burdemar.products.products.dto.ProductChangesDTO;
 import cz.burdemar.products.products.dto.ProductDTO;
+import cz.burdemar.products.products.dto.ProductFilterCriteria;
+import cz.burdemar.products.products.dto.ProductFilterResult;
+import cz.burdemar.products.products.dto.ProductImportResult;
+import cz.burdemar.products.products.service.BulkProductService;
+import cz.burdemar.products.products.service.ProductImportService;
 import cz.burdemar.products.products.service.ProductService;
+import cz.burdemar.products.products.service.StockEventStreamService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -10,9 +21,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -21,6 +36,9 @@ import java.util.List;
 @Tag(name = "Product", description = "Product management APIs")
 public class ProductController {
     private final ProductService productService;
+    private final StockEventStreamService stockEventStreamService;
+    private final ProductImportService productImportService;
+    private final BulkProductService bulkProductService;
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieve a list of all products")
@@ -28,6 +46,45 @@ public class ProductController {
         return ResponseEntity.ok(productService.getAllProducts());
     }
 
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get products by IDs", description = "Retrieve up to 1000 products in one call, in the order requested. IDs without a product are listed in missingIds")
+    @ApiResponse(responseCode = "200", description = "Products retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "No product IDs or too many product IDs")
+    public ResponseEntity<ProductBatchResult> getProductsByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(productService.getProductsByIds(ids));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Get products by IDs (POST)", description = "Same as GET /api/products?ids= for ID lists too long for a URL")
+    @ApiResponse(responseCode = "200", description = "Products retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "No product IDs or too many product IDs")
+    public ResponseEntity<ProductBatchResult> getProductsByIdsBatch(@Valid @RequestBody ProductBatchRequest request) {
+        return ResponseEntity.ok(productService.getProductsByIds(request.getIds()));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search products by name", description = "Type-ahead search: products whose name contains every word of q, the last word as a prefix. Case and diacritics are ignored")
+    @ApiResponse(responseCode = "200", description = "Matching products retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Limit out of range")
+    public ResponseEntity<List<ProductDTO>> searchProducts(@RequestParam String q,
+                                                           @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(productService.searchProducts(q, limit));
+    }
+
+    @GetMapping("/filter")
+    @Operation(summary = "Filter products", description = "Page through products within a price range, optionally only those in stock, sorted by price or name")
+    @ApiResponse(responseCode = "200", description = "Matching products retrieved successfully")
+    public ResponseEntity<ProductFilterResult> filterProducts(ProductFilterCriteria criteria) {
+        return ResponseEntity.ok(productService.filterProducts(criteria));
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get catalog changes", description = "Products created or changed and IDs of products deleted after the given version, plus the version to pass next time. since=0 returns the whole catalog")
+    @ApiResponse(responseCode = "200", description = "Changes retrieved successfully")
+    public ResponseEntity<ProductChangesDTO> getProductChanges(@RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok(productService.getChanges(since));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieve a specific product by its ID")
     @ApiResponse(responseCode = "200", description = "Product found")
@@ -36,6 +93,14 @@ public class ProductController {
         return ResponseEntity.ok(productService.getProductById(id));
     }
 
+    @GetMapping(value = "/stock-events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream stock levels", description = "Server-Sent Events stream of the current stock of the given products followed by coalesced changes")
+    @ApiResponse(responseCode = "200", description = "Event stream opened")
+    @ApiResponse(responseCode = "400", description = "No product IDs or too many product IDs")
+    public SseEmitter streamStockEvents(@RequestParam List<Long> ids) {
+        return stockEventStreamService.subscribe(ids);
+    }
+
     @PostMapping
     @Operation(summary = "Create product", description = "Create a new product")
     @ApiResponse(responseCode = "201", description = "Product created successfully")
@@ -45,6 +110,28 @@ public class ProductController {
         return new ResponseEntity<>(createdProduct, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @Operation(summary = "Import products from CSV", description = "Stream a CSV file with a name,price,stockQuantity header. Valid rows are inserted, invalid rows are skipped and reported")
+    @ApiResponse(responseCode = "200", description = "Import finished; see the summary for rejected rows")
+    public ResponseEntity<ProductImportResult> importProductsCsv(InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importCsv(body));
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Import products from NDJSON", description = "Stream one product JSON object per line. Valid rows are inserted, invalid rows are skipped and reported")
+    @ApiResponse(responseCode = "200", description = "Import finished; see the summary for rejected rows")
+    public ResponseEntity<ProductImportResult> importProductsNdjson(InputStream body) throws IOException {
+        return ResponseEntity.ok(productImportService.importNdjson(body));
+    }
+
+    @PatchMapping("/bulk")
+    @Operation(summary = "Restock and reprice products in bulk", description = "Apply up to 10000 relative stock deltas and absolute price updates. Updates that cannot be applied are reported and do not affect the others")
+    @ApiResponse(responseCode = "200", description = "Updates applied; see the failures for rejected ones")
+    @ApiResponse(responseCode = "400", description = "Invalid input")
+    public ResponseEntity<ProductBulkUpdateResult> bulkUpdateProducts(@Valid @RequestBody ProductBulkUpdateRequest request) {
+        return ResponseEntity.ok(bulkProductService.applyUpdates(request.getUpdates()));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update product", description = "Update an existing product")
     @ApiResponse(responseCode = "200", description = "Product updated successfully")
@@ -0,0 +1,62 @@
+package cz.burdemar.products.products.controller;
+
+import cz.burdemar.products.products.dto.DailySalesDTO;
+import cz.burdemar.products.products.dto.ProductSalesDTO;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.service.SalesStatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Tag(name = "Stats", description = "Sales statistics APIs")
+public class StatsController {
+    private final SalesStatsService salesStatsService;
+
+    @GetMapping("/orders/status-counts")
+    @Operation(summary = "Order counts by status", description = "Current number of orders in each status")
+    public ResponseEntity<Map<Order.OrderStatus, Long>> getStatusCounts() {
+        return ResponseEntity.ok(salesStatsService.getStatusCounts());
+    }
+
+    @GetMapping("/sales/daily")
+    @Operation(summary = "Daily sales", description = "Created, paid, canceled and expired orders with paid units and revenue per day, defaults to the last 30 days")
+    @ApiResponse(responseCode = "200", description = "Daily sales retrieved successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid date range")
+    public ResponseEntity<List<DailySalesDTO>> getDailySales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(29);
+        return ResponseEntity.ok(salesStatsService.getDailySales(start, end));
+    }
+
+    @GetMapping("/products/{id}")
+    @Operation(summary = "Product sales", description = "Lifetime paid orders, units and revenue of a product")
+    public ResponseEntity<ProductSalesDTO> getProductSales(@PathVariable Long id) {
+        return ResponseEntity.ok(salesStatsService.getProductSales(id));
+    }
+
+    @GetMapping("/top-sellers")
+    @Operation(summary = "Top sellers", description = "Products with the most paid units")
+    public ResponseEntity<List<ProductSalesDTO>> getTopSellers(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(salesStatsService.getTopSellers(limit));
+    }
+
+    @PostMapping("/rebuild")
+    @Operation(summary = "Rebuild statistics", description = "Recompute all rollups and counters from the order tables")
+    @ApiResponse(responseCode = "200", description = "Statistics rebuilt, returns the recomputed status counts")
+    public ResponseEntity<Map<Order.OrderStatus, Long>> rebuild() {
+        return ResponseEntity.ok(salesStatsService.rebuild());
+    }
+}
@@ -0,0 +1,72 @@
+package cz.burdemar.products.products.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Routes connections of read-only transactions to the replica pool while the replica is
+ * considered fresh enough, and otherwise to the primary's read pool; everything else goes to the
+ * primary's write pool. Read-only transactions started from {@link #primaryReads} always use the
+ * primary's read pool, for reads that must see the latest commit without taking a write connection.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}
+ * so the routing decision is made after the transaction's read-only flag is bound.
+ */
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, PRIMARY_READS, REPLICA
+    }
+
+    static final String PRIMARY_READS_TRANSACTION = "primary-reads";
+
+    private final BooleanSupplier replicaUsable;
+
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource primaryReads) {
+        this(primary, primaryReads, null, () -> false);
+    }
+
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource primaryReads, DataSource replica,
+                                     BooleanSupplier replicaUsable) {
+        this.replicaUsable = replicaUsable;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Route.PRIMARY, primary);
+        targets.put(Route.PRIMARY_READS, primaryReads);
+        if (replica != null) {
+            targets.put(Route.REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Returns a template for new read-only transactions on the primary's read pool, such as
+     * reading a change back after its commit, which a lagging replica may not have applied yet.
+     */
+    public static TransactionTemplate primaryReads(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setName(PRIMARY_READS_TRANSACTION);
+        template.setReadOnly(true);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        if (PRIMARY_READS_TRANSACTION.equals(TransactionSynchronizationManager.getCurrentTransactionName())) {
+            return Route.PRIMARY_READS;
+        }
+        return replicaUsable.getAsBoolean() ? Route.REPLICA : Route.PRIMARY_READS;
+    }
+}
@@ -0,0 +1,19 @@
+package cz.burdemar.products.products.datasource;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "shop.datasource.replica")
+public class ReplicaDataSourceProperties {
+    private boolean enabled;
+    private String url;
+    private String username;
+    private String password;
+    private String driverClassName;
+
+    // How far behind the primary the replica may be before reads fall back to the primary
+    private Duration maxLag = Duration.ofSeconds(5);
+}
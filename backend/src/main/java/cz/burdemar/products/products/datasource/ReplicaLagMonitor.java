@@ -0,0 +1,70 @@
+package cz.burdemar.products.products.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Tracks replication lag with a heartbeat row written to the primary and read back from
+ * the replica. The replica is only used while the observed lag stays within the configured
+ * tolerance; until the first successful check, or whenever the replica cannot be read,
+ * all reads stay on the primary.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final Duration maxLag;
+
+    private volatile boolean replicaUsable;
+    private boolean heartbeatTableCreated;
+
+    public ReplicaLagMonitor(JdbcTemplate primary, JdbcTemplate replica, Duration maxLag) {
+        this.primary = primary;
+        this.replica = replica;
+        this.maxLag = maxLag;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    @Scheduled(fixedDelayString = "${shop.datasource.replica.lag-check-interval:1000}")
+    public void checkLag() {
+        boolean usable;
+        try {
+            Instant now = Instant.now();
+            writeHeartbeat(now);
+
+            Timestamp replicated = replica.queryForObject(
+                    "SELECT beat_at FROM replica_heartbeat WHERE id = 1", Timestamp.class);
+            usable = replicated != null && Duration.between(replicated.toInstant(), now).compareTo(maxLag) <= 0;
+        } catch (DataAccessException e) {
+            log.debug("Replica heartbeat check failed", e);
+            usable = false;
+        }
+
+        if (usable && !replicaUsable) {
+            log.info("Replica caught up, routing read-only transactions to it");
+        } else if (!usable && replicaUsable) {
+            log.warn("Replica lag above {} or replica unreachable, routing reads to primary", maxLag);
+        }
+        replicaUsable = usable;
+    }
+
+    private void writeHeartbeat(Instant now) {
+        if (!heartbeatTableCreated) {
+            primary.execute("CREATE TABLE IF NOT EXISTS replica_heartbeat (id INT PRIMARY KEY, beat_at TIMESTAMP NOT NULL)");
+            heartbeatTableCreated = true;
+        }
+        Timestamp beat = Timestamp.from(now);
+        if (primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", beat) == 0) {
+            primary.update("INSERT INTO replica_heartbeat (id, beat_at) VALUES (1, ?)", beat);
+        }
+    }
+}
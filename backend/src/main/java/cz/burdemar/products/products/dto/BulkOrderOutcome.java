@@ -0,0 +1,32 @@
+package cz.burdemar.products.products.dto;
+
+import cz.burdemar.products.products.model.Order;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderOutcome {
+    private Long orderId;
+    private Result result;
+    private Order.OrderStatus status;
+    private String message;
+
+    public enum Result {
+        SUCCEEDED,
+        NOT_FOUND,
+        INVALID_STATUS,
+        /**
+         * The order was still pending but past its expiry time; it has been expired instead of paid.
+         */
+        EXPIRED,
+        /**
+         * The chunk containing the order failed and was rolled back.
+         */
+        FAILED
+    }
+}
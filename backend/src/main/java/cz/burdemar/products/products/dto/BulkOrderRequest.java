@@ -0,0 +1,21 @@
+package cz.burdemar.products.products.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderRequest {
+    @NotEmpty(message = "At least one order ID is required")
+    @Size(max = 1000, message = "At most 1000 orders can be processed at once")
+    private List<@NotNull(message = "Order ID is required") Long> orderIds;
+}
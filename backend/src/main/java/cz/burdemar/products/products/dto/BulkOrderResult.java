@@ -0,0 +1,18 @@
+package cz.burdemar.products.products.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkOrderResult {
+    private int succeeded;
+    private int failed;
+    private List<BulkOrderOutcome> outcomes;
+}
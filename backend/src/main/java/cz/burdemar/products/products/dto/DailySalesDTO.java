@@ -0,0 +1,23 @@
+package cz.burdemar.products.products.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesDTO {
+    private LocalDate date;
+    private long createdOrders;
+    private long paidOrders;
+    private long canceledOrders;
+    private long expiredOrders;
+    private long paidUnits;
+    private BigDecimal paidRevenue;
+}
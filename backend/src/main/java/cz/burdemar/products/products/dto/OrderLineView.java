@@ -0,0 +1,24 @@
+package cz.burdemar.products.products.dto;
+
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.model.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat order/item row read by constructor projection, bypassing the persistence context.
+ * Item columns are null for orders without items.
+ */
+public record OrderLineView(Long orderId,
+                            Order.OrderStatus status,
+                            LocalDateTime createdAt,
+                            LocalDateTime expiryTime,
+                            LocalDateTime paidAt,
+                            LocalDateTime canceledAt,
+                            Money totalAmount,
+                            Long itemId,
+                            Long productId,
+                            String productName,
+                            Integer quantity,
+                            Money price) {
+}
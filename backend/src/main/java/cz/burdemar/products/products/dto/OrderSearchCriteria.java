@@ -0,0 +1,41 @@
+package cz.burdemar.products.products.dto;
+
+import cz.burdemar.products.products.model.Order;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchCriteria {
+    private Order.OrderStatus status;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    @Schema(description = "Inclusive lower bound of the creation time")
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    @Schema(description = "Exclusive upper bound of the creation time")
+    private LocalDateTime createdTo;
+
+    private BigDecimal minTotal;
+    private BigDecimal maxTotal;
+    private Long productId;
+
+    @Schema(description = "Cursor returned as nextCursor by the previous page")
+    private Long afterId;
+
+    @Schema(description = "Also search closed orders moved to the archive; both tables are then queried")
+    private boolean includeArchived;
+
+    @Builder.Default
+    private int size = 50;
+}
@@ -0,0 +1,21 @@
+package cz.burdemar.products.products.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSearchResult {
+    private List<OrderDTO> orders;
+    private boolean hasNext;
+
+    @Schema(description = "Pass as afterId to fetch the next page; null on the last page")
+    private Long nextCursor;
+}
@@ -0,0 +1,21 @@
+package cz.burdemar.products.products.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchRequest {
+    @NotEmpty(message = "At least one product ID is required")
+    @Size(max = 1000, message = "At most 1000 products can be looked up at once")
+    private List<@NotNull(message = "Product ID is required") Long> ids;
+}
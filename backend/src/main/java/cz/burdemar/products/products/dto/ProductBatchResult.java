@@ -0,0 +1,21 @@
+package cz.burdemar.products.products.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchResult {
+    @Schema(description = "Found products in the order they were requested, each one once")
+    private List<ProductDTO> products;
+
+    @Schema(description = "Requested IDs with no product, in the order they were requested")
+    private List<Long> missingIds;
+}
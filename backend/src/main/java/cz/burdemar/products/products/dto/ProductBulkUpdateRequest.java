@@ -0,0 +1,43 @@
+package cz.burdemar.products.products.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateRequest {
+    @NotEmpty(message = "At least one update is required")
+    @Size(max = 10000, message = "At most 10000 updates can be applied at once")
+    @Valid
+    private List<Update> updates;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Update {
+        @NotNull(message = "Product ID is required")
+        private Long productId;
+
+        @Schema(description = "Added to the current stock quantity; negative values remove stock")
+        private Integer stockDelta;
+
+        @Schema(description = "New price, replacing the current one")
+        @Positive(message = "Price must be positive")
+        @Digits(integer = 17, fraction = 2, message = "Price must have at most 2 decimal places")
+        private BigDecimal price;
+    }
+}
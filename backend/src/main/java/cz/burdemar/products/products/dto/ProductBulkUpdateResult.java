@@ -0,0 +1,42 @@
+package cz.burdemar.products.products.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBulkUpdateResult {
+    private int updated;
+    private List<Failure> failures;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+        private Long productId;
+        private Reason reason;
+        private String message;
+    }
+
+    public enum Reason {
+        NOT_FOUND,
+        /**
+         * The stock delta would make the stock quantity negative.
+         */
+        INSUFFICIENT_STOCK,
+        /**
+         * The update has neither a stock delta nor a price.
+         */
+        EMPTY_UPDATE,
+        /**
+         * The chunk containing the update failed and was rolled back.
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,24 @@
+package cz.burdemar.products.products.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+    @Schema(description = "Products created or changed since the requested version, in their current state")
+    private List<ProductDTO> products;
+
+    @Schema(description = "IDs of products deleted since the requested version")
+    private List<Long> deletedIds;
+
+    @Schema(description = "Pass as since in the next request")
+    private long version;
+}
@@ -1,5 +1,6 @@
 package cz.burdemar.products.products.dto;
 
+import jakarta.validation.constraints.Digits;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -23,6 +24,7 @@ public class ProductDTO {
 
     @NotNull(message = "Price is required")
     @Positive(message = "Price must be positive")
+    @Digits(integer = 17, fraction = 2, message = "Price must have at most 2 decimal places")
     private BigDecimal price;
 
     @NotNull(message = "Stock quantity is required")
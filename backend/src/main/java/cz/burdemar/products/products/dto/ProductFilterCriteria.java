@@ -0,0 +1,39 @@
+package cz.burdemar.products.products.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterCriteria {
+    public enum SortOrder {
+        PRICE_ASC,
+        PRICE_DESC,
+        NAME_ASC
+    }
+
+    @Schema(description = "Inclusive lower bound of the price")
+    private BigDecimal minPrice;
+
+    @Schema(description = "Inclusive upper bound of the price")
+    private BigDecimal maxPrice;
+
+    @Schema(description = "Only products with stock left")
+    private boolean inStock;
+
+    @Builder.Default
+    private SortOrder sort = SortOrder.PRICE_ASC;
+
+    @Schema(description = "Zero-based page number")
+    private int page;
+
+    @Builder.Default
+    private int size = 50;
+}
@@ -0,0 +1,17 @@
+package cz.burdemar.products.products.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterResult {
+    private List<ProductDTO> products;
+    private boolean hasNext;
+}
@@ -0,0 +1,37 @@
+package cz.burdemar.products.products.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResult {
+    private long imported;
+    private long rejected;
+
+    @Schema(description = "Rejected rows, only the first ones when errorsTruncated is set")
+    private List<RowError> errors;
+    private boolean errorsTruncated;
+
+    @Schema(description = "Set when the file could not be read any further; rows before it were imported")
+    private String abortedReason;
+
+    @Schema(description = "CSV header columns that were not imported, e.g. the id of an exported product")
+    private List<String> ignoredColumns;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        @Schema(description = "1-based number of the record, not counting the CSV header")
+        private long row;
+        private String message;
+    }
+}
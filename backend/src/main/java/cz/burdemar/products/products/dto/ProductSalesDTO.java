@@ -0,0 +1,20 @@
+package cz.burdemar.products.products.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesDTO {
+    private Long productId;
+    private String productName;
+    private long paidOrders;
+    private long paidUnits;
+    private BigDecimal paidRevenue;
+}
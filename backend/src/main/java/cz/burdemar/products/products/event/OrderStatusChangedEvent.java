@@ -0,0 +1,11 @@
+package cz.burdemar.products.products.event;
+
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.model.Order;
+
+/**
+ * Published by {@code OrderService} whenever an order is created or moves to another status.
+ * {@code previousStatus} is null for newly created orders.
+ */
+public record OrderStatusChangedEvent(OrderDTO order, Order.OrderStatus previousStatus) {
+}
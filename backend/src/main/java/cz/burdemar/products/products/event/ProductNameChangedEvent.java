@@ -0,0 +1,8 @@
+package cz.burdemar.products.products.event;
+
+/**
+ * Published by {@code ProductService} when a product is created, renamed or deleted. Carries no
+ * name: listeners of different transactions may run in any order, so they read the current name.
+ */
+public record ProductNameChangedEvent(Long productId) {
+}
@@ -0,0 +1,7 @@
+package cz.burdemar.products.products.event;
+
+/**
+ * Published by {@code ProductService} for every product whose stock quantity a transaction changed.
+ */
+public record ProductStockChangedEvent(Long productId, int stockQuantity) {
+}
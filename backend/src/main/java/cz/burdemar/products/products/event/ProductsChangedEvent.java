@@ -0,0 +1,11 @@
+package cz.burdemar.products.products.event;
+
+import java.util.Collection;
+
+/**
+ * Published when products are created, updated or deleted, and once per chunk of a bulk product
+ * update listing every product the chunk changed, so that downstream caches can reload them in
+ * one go instead of per product. Stock reservations only publish {@link ProductStockChangedEvent}.
+ */
+public record ProductsChangedEvent(Collection<Long> productIds) {
+}
@@ -0,0 +1,8 @@
+package cz.burdemar.products.products.event;
+
+/**
+ * Published by {@code ProductImportService} after each committed import batch. The inserted
+ * products all carry the batch's change version, as their IDs are not returned by the batch insert.
+ */
+public record ProductsImportedEvent(long changeVersion) {
+}
@@ -0,0 +1,18 @@
+package cz.burdemar.products.products.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * An {@code Idempotency-Key} that cannot be honoured: reused for a different request, or its
+ * original request is still being processed.
+ */
+@Getter
+public class IdempotencyKeyConflictException extends RuntimeException {
+    private final HttpStatus status;
+
+    public IdempotencyKeyConflictException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
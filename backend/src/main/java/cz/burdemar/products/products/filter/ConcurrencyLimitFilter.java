@@ -0,0 +1,220 @@
+package cz.burdemar.products.products.filter;
+
+import cz.burdemar.products.products.limiter.AimdLimiter;
+import cz.burdemar.products.products.limiter.PriorityPermits;
+import cz.burdemar.products.products.limiter.RequestClass;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+
+/**
+ * Sheds load before it reaches the database, by {@link RequestClass}.
+ * <ul>
+ *     <li>Catalog reads have their own {@link AimdLimiter}, so a checkout storm queuing on product
+ *     row locks cannot starve browsing.</li>
+ *     <li>Checkouts have a second AIMD limiter and may only use the unreserved part of the write
+ *     permits.</li>
+ *     <li>Admin writes (imports, bulk updates, product edits) also use unreserved write permits,
+ *     but have a small fixed budget instead of an AIMD limiter: they are slow by nature, and
+ *     their latency would otherwise shrink the checkout limit.</li>
+ *     <li>Payments and cancellations skip the AIMD limiter and may use every write permit,
+ *     including those reserved for them, waiting briefly for one if needed.</li>
+ * </ul>
+ * Write permits default to the size of the write connection pool, which read-only transactions
+ * do not use, so writers queue here by priority rather than in the pool in arrival order. Rejected requests get 503 with a Retry-After header.
+ */
+@Component
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    private static final Pattern PAYMENT_PATH = Pattern.compile("^/api/orders/\\d+/(pay|cancel)$");
+
+    private final boolean enabled;
+    private final int retryAfterSeconds;
+    private final Duration paymentMaxWait;
+    private final AimdLimiter writeLimiter;
+    private final AimdLimiter catalogLimiter;
+    private final Semaphore adminPermits;
+    private final PriorityPermits writePermits;
+    private final Map<RequestClass, Counter> rejections = new EnumMap<>(RequestClass.class);
+
+    public ConcurrencyLimitFilter(@Value("${shop.concurrency.enabled:true}") boolean enabled,
+                                  @Value("${shop.concurrency.retry-after:1s}") Duration retryAfter,
+                                  @Value("${shop.concurrency.orders.initial-limit:20}") int ordersInitialLimit,
+                                  @Value("${shop.concurrency.orders.max-limit:100}") int ordersMaxLimit,
+                                  @Value("${shop.concurrency.orders.latency-threshold:500ms}") Duration ordersLatencyThreshold,
+                                  @Value("${shop.concurrency.catalog.initial-limit:100}") int catalogInitialLimit,
+                                  @Value("${shop.concurrency.catalog.max-limit:400}") int catalogMaxLimit,
+                                  @Value("${shop.concurrency.catalog.latency-threshold:200ms}") Duration catalogLatencyThreshold,
+                                  @Value("${shop.concurrency.admin.max-concurrent:2}") int adminMaxConcurrent,
+                                  @Value("${shop.concurrency.write-permits:${spring.datasource.hikari.maximum-pool-size:10}}") int writePermits,
+                                  @Value("${shop.concurrency.payments.reserved-permits:3}") int paymentReservedPermits,
+                                  @Value("${shop.concurrency.payments.max-wait:2s}") Duration paymentMaxWait,
+                                  ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = (int) Math.max(1, retryAfter.toSeconds());
+        this.paymentMaxWait = paymentMaxWait;
+        this.writeLimiter = new AimdLimiter(ordersInitialLimit, 1, ordersMaxLimit, ordersLatencyThreshold, 0.9);
+        this.catalogLimiter = new AimdLimiter(catalogInitialLimit, 1, catalogMaxLimit, catalogLatencyThreshold, 0.9);
+        this.adminPermits = new Semaphore(adminMaxConcurrent);
+        this.writePermits = new PriorityPermits(writePermits, paymentReservedPermits);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registerLimiterGauges(registry, "orders", writeLimiter);
+            registerLimiterGauges(registry, "catalog", catalogLimiter);
+            Gauge.builder("shop.concurrency.write_permits.in_use", this.writePermits, PriorityPermits::getInUse).register(registry);
+            for (RequestClass requestClass : RequestClass.values()) {
+                rejections.put(requestClass, Counter.builder("shop.concurrency.rejected")
+                        .tag("class", requestClass.name().toLowerCase())
+                        .register(registry));
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || classify(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        RequestClass requestClass = classify(request);
+        switch (requestClass) {
+            case CATALOG -> runLimited(catalogLimiter, requestClass, request, response, chain);
+            case PAYMENT -> runPayment(request, response, chain);
+            case ADMIN_WRITE -> runAdminWrite(request, response, chain);
+            default -> {
+                if (!writePermits.tryAcquire()) {
+                    reject(requestClass, response);
+                    return;
+                }
+                try {
+                    runLimited(writeLimiter, requestClass, request, response, chain);
+                } finally {
+                    writePermits.release();
+                }
+            }
+        }
+    }
+
+    static RequestClass classify(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String method = request.getMethod();
+        boolean read = HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method);
+        if (HttpMethod.OPTIONS.matches(method)) {
+            return null;
+        }
+
+        if (path.startsWith("/api/orders/bulk/")) {
+            return RequestClass.ADMIN_WRITE;
+        }
+        if (path.startsWith("/api/orders") && !read) {
+            return HttpMethod.POST.matches(method) && PAYMENT_PATH.matcher(path).matches()
+                    ? RequestClass.PAYMENT
+                    : RequestClass.CHECKOUT;
+        }
+        if (path.startsWith("/api/products")) {
+            // The batch lookup is a read sent as POST only because its ID list may not fit a URL
+            if (!read && !path.equals("/api/products/batch")) {
+                return RequestClass.ADMIN_WRITE;
+            }
+            // Event streams stay open for minutes and would pin a permit each
+            return path.endsWith("-events") ? null : RequestClass.CATALOG;
+        }
+        return null;
+    }
+
+    private void runLimited(AimdLimiter limiter, RequestClass requestClass, HttpServletRequest request,
+                            HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        if (!limiter.tryAcquire()) {
+            reject(requestClass, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    private void runAdminWrite(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!adminPermits.tryAcquire()) {
+            reject(RequestClass.ADMIN_WRITE, response);
+            return;
+        }
+        try {
+            if (!writePermits.tryAcquire()) {
+                reject(RequestClass.ADMIN_WRITE, response);
+                return;
+            }
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                writePermits.release();
+            }
+        } finally {
+            adminPermits.release();
+        }
+    }
+
+    private void runPayment(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            if (!writePermits.acquirePriority(paymentMaxWait)) {
+                reject(RequestClass.PAYMENT, response);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(RequestClass.PAYMENT, response);
+            return;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            writePermits.release();
+        }
+    }
+
+    private void reject(RequestClass requestClass, HttpServletResponse response) throws IOException {
+        Counter counter = rejections.get(requestClass);
+        if (counter != null) {
+            counter.increment();
+        }
+        log.debug("Rejecting {} request over its concurrency limit", requestClass);
+
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write("{\"status\":503,\"message\":\"Server is busy, please retry later\"}");
+    }
+
+    private static void registerLimiterGauges(MeterRegistry registry, String budget, AimdLimiter limiter) {
+        Gauge.builder("shop.concurrency.limit", limiter, AimdLimiter::getLimit).tag("budget", budget).register(registry);
+        Gauge.builder("shop.concurrency.in_flight", limiter, AimdLimiter::getInFlight).tag("budget", budget).register(registry);
+    }
+}
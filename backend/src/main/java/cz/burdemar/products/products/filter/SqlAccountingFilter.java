@@ -0,0 +1,63 @@
+package cz.burdemar.products.products.filter;
+
+import cz.burdemar.products.products.metrics.SqlStatementRecorder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Binds a {@link SqlStatementRecorder} to each API request, logs the statement count and
+ * DB time when the request completes and warns about statements repeated over the
+ * N+1 threshold.
+ */
+@Component
+@Slf4j
+public class SqlAccountingFilter extends OncePerRequestFilter {
+
+    @Value("${shop.sql-accounting.enabled:true}")
+    private boolean enabled;
+
+    @Value("${shop.sql-accounting.n-plus-one-threshold:10}")
+    private int nPlusOneThreshold;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        SqlStatementRecorder recorder = SqlStatementRecorder.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlStatementRecorder.stop();
+            report(request, response, recorder);
+        }
+    }
+
+    private void report(HttpServletRequest request, HttpServletResponse response, SqlStatementRecorder recorder) {
+        if (log.isDebugEnabled()) {
+            log.debug("{} {} -> {}: {} SQL statements, {} ms in DB", request.getMethod(), request.getRequestURI(),
+                    response.getStatus(), recorder.getStatementCount(), recorder.getTotalTimeMillis());
+        }
+
+        if (recorder.getStatementCount() < nPlusOneThreshold) {
+            return;
+        }
+        for (Map.Entry<String, Integer> repeated : recorder.getRepeatedStatements(nPlusOneThreshold).entrySet()) {
+            log.warn("Possible N+1 in {} {}: statement executed {} times: {}", request.getMethod(),
+                    request.getRequestURI(), repeated.getValue(), repeated.getKey());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cz.burdemar.products.products.limiter;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed number of permits of which some are reserved for priority work. Regular requests may
+ * only use the unreserved part and never wait; priority requests may use every permit and wait
+ * for one to free up. While a priority request is waiting, regular requests are refused so that
+ * a freed permit goes to the waiter.
+ */
+public class PriorityPermits {
+    private final int total;
+    private final int reserved;
+
+    private int inUse;
+    private int waitingPriority;
+
+    public PriorityPermits(int total, int reserved) {
+        if (reserved < 0 || reserved >= total) {
+            throw new IllegalArgumentException("Reserved permits must be between 0 and " + (total - 1));
+        }
+        this.total = total;
+        this.reserved = reserved;
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (waitingPriority > 0 || inUse >= total - reserved) {
+            return false;
+        }
+        inUse++;
+        return true;
+    }
+
+    public synchronized boolean acquirePriority(Duration maxWait) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        waitingPriority++;
+        try {
+            while (inUse >= total) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            inUse++;
+            return true;
+        } finally {
+            waitingPriority--;
+        }
+    }
+
+    public synchronized void release() {
+        inUse--;
+        notifyAll();
+    }
+
+    public synchronized int getInUse() {
+        return inUse;
+    }
+
+    synchronized int getWaitingPriority() {
+        return waitingPriority;
+    }
+}
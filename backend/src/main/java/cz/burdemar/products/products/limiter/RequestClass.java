@@ -0,0 +1,24 @@
+package cz.burdemar.products.products.limiter;
+
+/**
+ * Classes of API requests that compete for the same threads and database connections, in order
+ * of priority.
+ */
+public enum RequestClass {
+    /**
+     * Paying or canceling an existing order; the customer already holds a stock reservation.
+     */
+    PAYMENT,
+    /**
+     * Creating a new order.
+     */
+    CHECKOUT,
+    /**
+     * Creating, editing or deleting products, and back-office bulk order operations.
+     */
+    ADMIN_WRITE,
+    /**
+     * Reading the product catalog.
+     */
+    CATALOG
+}
@@ -0,0 +1,71 @@
+package cz.burdemar.products.products.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Central registry of the meters recorded on the order and inventory hot paths.
+ * Meters are registered once at startup so recording is a plain field access.
+ */
+@Component
+@Getter
+public class ShopMetrics {
+    private final Timer createOrderTimer;
+    private final Timer payOrderTimer;
+    private final Timer cancelOrderTimer;
+    private final Timer lockWaitTimer;
+    private final Timer expiryRunTimer;
+    private final Timer jwtParseTimer;
+    private final Counter insufficientStockCounter;
+    private final Counter productByIdLoadedCounter;
+    private final Counter productByIdJoinedCounter;
+    private final Counter catalogLoadedCounter;
+    private final Counter catalogJoinedCounter;
+
+    public ShopMetrics(MeterRegistry registry) {
+        this.createOrderTimer = orderOperationTimer(registry, "create");
+        this.payOrderTimer = orderOperationTimer(registry, "pay");
+        this.cancelOrderTimer = orderOperationTimer(registry, "cancel");
+
+        this.lockWaitTimer = Timer.builder("shop.products.lock.wait")
+                .description("Time spent acquiring a pessimistic row lock on a product")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        this.expiryRunTimer = Timer.builder("shop.orders.expiry.run")
+                .description("Duration of a single expired-order processing run")
+                .register(registry);
+
+        this.jwtParseTimer = Timer.builder("shop.jwt.parse")
+                .description("Time spent parsing and verifying a JWT")
+                .register(registry);
+
+        this.insufficientStockCounter = Counter.builder("shop.orders.stock.rejected")
+                .description("Order items rejected because of insufficient stock")
+                .register(registry);
+
+        // joined / (loaded + joined) is the share of reads collapsed into another read's query
+        this.productByIdLoadedCounter = productReadCounter(registry, "by-id", "loaded");
+        this.productByIdJoinedCounter = productReadCounter(registry, "by-id", "joined");
+        this.catalogLoadedCounter = productReadCounter(registry, "all", "loaded");
+        this.catalogJoinedCounter = productReadCounter(registry, "all", "joined");
+    }
+
+    private static Counter productReadCounter(MeterRegistry registry, String operation, String outcome) {
+        return Counter.builder("shop.products.reads")
+                .description("Product reads that ran a database query (loaded) or shared one already running (joined)")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static Timer orderOperationTimer(MeterRegistry registry, String operation) {
+        return Timer.builder("shop.orders.operation")
+                .description("Duration of order service operations")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
@@ -0,0 +1,114 @@
+package cz.burdemar.products.products.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Counts and times every statement executed on the current request's recorder, whether it comes
+ * from Hibernate or from a {@link org.springframework.jdbc.core.JdbcTemplate}. Counting happens
+ * when a statement runs, not when it is prepared: a prepared statement run three times counts
+ * three times, and a batch of a prepared statement counts once per round trip.
+ */
+public class SqlRecordingDataSource extends DelegatingDataSource {
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public SqlRecordingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return recording(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return recording(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    private static Connection recording(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(SqlRecordingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return recording(statement, sql);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement recording(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(SqlRecordingDataSource.class.getClassLoader(),
+                new Class<?>[]{type}, new RecordingStatement(statement, preparedSql));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class RecordingStatement implements InvocationHandler {
+        private final Statement statement;
+        private final String preparedSql;
+        // SQL added with Statement.addBatch(String), reported when the batch runs
+        private final List<String> batchSql = new ArrayList<>();
+
+        private RecordingStatement(Statement statement, String preparedSql) {
+            this.statement = statement;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("addBatch") && args != null && args.length == 1) {
+                batchSql.add((String) args[0]);
+            }
+            // Running a batch clears it as well
+            List<String> batch = List.of();
+            if (name.equals("clearBatch") || name.equals("executeBatch") || name.equals("executeLargeBatch")) {
+                batch = List.copyOf(batchSql);
+                batchSql.clear();
+            }
+            SqlStatementRecorder recorder = SqlStatementRecorder.current();
+            if (recorder == null || !EXECUTE_METHODS.contains(name)) {
+                return SqlRecordingDataSource.invoke(statement, method, args);
+            }
+
+            if (preparedSql != null) {
+                recorder.recordStatement(preparedSql);
+            } else if (args != null && args.length > 0) {
+                recorder.recordStatement((String) args[0]);
+            } else {
+                batch.forEach(recorder::recordStatement);
+            }
+
+            recorder.executionStarted();
+            try {
+                return SqlRecordingDataSource.invoke(statement, method, args);
+            } finally {
+                recorder.executionFinished();
+            }
+        }
+    }
+}
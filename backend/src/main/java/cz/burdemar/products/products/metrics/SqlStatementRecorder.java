@@ -0,0 +1,74 @@
+package cz.burdemar.products.products.metrics;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-request accounting of the SQL statements executed through {@link SqlRecordingDataSource}.
+ * Bound to the request thread by {@link cz.burdemar.products.products.filter.SqlAccountingFilter};
+ * when no recorder is bound every hook is a single ThreadLocal read.
+ */
+public final class SqlStatementRecorder {
+    private static final ThreadLocal<SqlStatementRecorder> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, Integer> executionsBySql = new HashMap<>();
+    private int statementCount;
+    private long totalNanos;
+    private long executionStartNanos;
+
+    private SqlStatementRecorder() {
+    }
+
+    public static SqlStatementRecorder start() {
+        SqlStatementRecorder recorder = new SqlStatementRecorder();
+        CURRENT.set(recorder);
+        return recorder;
+    }
+
+    public static SqlStatementRecorder current() {
+        return CURRENT.get();
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    void recordStatement(String sql) {
+        statementCount++;
+        executionsBySql.merge(sql, 1, Integer::sum);
+    }
+
+    void executionStarted() {
+        executionStartNanos = System.nanoTime();
+    }
+
+    void executionFinished() {
+        if (executionStartNanos != 0) {
+            totalNanos += System.nanoTime() - executionStartNanos;
+            executionStartNanos = 0;
+        }
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getTotalTimeMillis() {
+        return totalNanos / 1_000_000;
+    }
+
+    /**
+     * Returns statements executed at least {@code threshold} times, which usually means
+     * a lazy association is being loaded row by row (N+1).
+     */
+    public Map<String, Integer> getRepeatedStatements(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        executionsBySql.forEach((sql, count) -> {
+            if (count >= threshold) {
+                repeated.put(sql, count);
+            }
+        });
+        return repeated;
+    }
+}
@@ -0,0 +1,36 @@
+package cz.burdemar.products.products.metrics;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the SQL statistics gathered so far to the response headers. Runs right before the
+ * body is written, i.e. while the headers can still be changed.
+ */
+@ControllerAdvice
+public class SqlStatisticsResponseAdvice implements ResponseBodyAdvice<Object> {
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String TIME_HEADER = "X-SQL-Time-Ms";
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatementRecorder recorder = SqlStatementRecorder.current();
+        if (recorder != null) {
+            response.getHeaders().set(STATEMENTS_HEADER, String.valueOf(recorder.getStatementCount()));
+            response.getHeaders().set(TIME_HEADER, String.valueOf(recorder.getTotalTimeMillis()));
+        }
+        return body;
+    }
+}
@@ -0,0 +1,46 @@
+package cz.burdemar.products.products.model;
+
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A paid, canceled or expired order moved out of the hot orders table. Rows are written only by
+ * the archival job and never change afterwards.
+ */
+@Entity
+@Table(name = "orders_archive", indexes = {
+        @Index(name = "idx_orders_archive_created", columnList = "created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedOrder {
+    @Id
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Order.OrderStatus status;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiryTime;
+
+    private LocalDateTime paidAt;
+
+    private LocalDateTime canceledAt;
+
+    @Convert(converter = MoneyConverter.class)
+    private Money totalAmount;
+}
@@ -0,0 +1,39 @@
+package cz.burdemar.products.products.model;
+
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An item of an {@link ArchivedOrder}. The product is kept by id and name only, without a foreign
+ * key, so archived orders never block deleting a product.
+ */
+@Entity
+@Table(name = "order_items_archive", indexes = {
+        @Index(name = "idx_order_items_archive_order", columnList = "order_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedOrderItem {
+    @Id
+    private Long id;
+
+    private Long orderId;
+
+    private Long productId;
+
+    private String productName;
+
+    private Integer quantity;
+
+    @Convert(converter = MoneyConverter.class)
+    private Money price;
+}
@@ -0,0 +1,32 @@
+package cz.burdemar.products.products.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.security.SecureRandom;
+
+/**
+ * Identifies the database the catalog lives in: a single row with a random id, created on first
+ * use, so that a copy of the catalog kept outside the database can tell it was made from another one.
+ */
+@Entity
+@Table(name = "catalog_epoch")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogEpoch {
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+
+    private Long databaseId;
+
+    public static CatalogEpoch random() {
+        return new CatalogEpoch(ID, new SecureRandom().nextLong());
+    }
+}
@@ -0,0 +1,48 @@
+package cz.burdemar.products.products.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Order activity of one day. Each transition is counted on the day it happened: creation on
+ * createdAt, payment on paidAt, cancellation on canceledAt and expiry on expiryTime.
+ */
+@Entity
+@Table(name = "daily_sales_rollup")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesRollup {
+    @Id
+    private LocalDate salesDate;
+
+    private long createdOrders;
+
+    private long paidOrders;
+
+    private long canceledOrders;
+
+    private long expiredOrders;
+
+    private long paidUnits;
+
+    // Minor units, see Money
+    private long paidRevenue;
+
+    public void add(DailySalesRollup other) {
+        createdOrders += other.createdOrders;
+        paidOrders += other.paidOrders;
+        canceledOrders += other.canceledOrders;
+        expiredOrders += other.expiredOrders;
+        paidUnits += other.paidUnits;
+        paidRevenue += other.paidRevenue;
+    }
+}
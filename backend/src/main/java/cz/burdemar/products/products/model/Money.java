@@ -0,0 +1,43 @@
+package cz.burdemar.products.products.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Monetary amount held as a long count of minor units (cents) at a fixed currency scale.
+ * Sums and products are plain long arithmetic; a {@link BigDecimal} is only created at the
+ * persistence and API boundaries.
+ */
+public record Money(long minorUnits) implements Comparable<Money> {
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * @throws ArithmeticException if the amount has more than {@link #SCALE} decimal places
+     *                             or does not fit into a long count of minor units
+     */
+    public static Money of(BigDecimal amount) {
+        return new Money(amount.movePointRight(SCALE).longValueExact());
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(int quantity) {
+        return new Money(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -1,12 +1,14 @@
 package cz.burdemar.products.products.model;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
@@ -14,13 +16,20 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// The order search pages by id, newest first: (status, id) walks one status in that order and stops
+// after a page; the created_at and total_amount indexes serve narrow ranges, which are then sorted
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_expiry", columnList = "status, expiry_time"),
+        @Index(name = "idx_orders_status_id", columnList = "status, id"),
+        @Index(name = "idx_orders_status_created", columnList = "status, created_at"),
+        @Index(name = "idx_orders_created", columnList = "created_at"),
+        @Index(name = "idx_orders_total_amount", columnList = "total_amount")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -41,7 +50,8 @@ public class Order {
 
     private LocalDateTime canceledAt;
 
-    private BigDecimal totalAmount;
+    @Convert(converter = MoneyConverter.class)
+    private Money totalAmount;
 
     @Builder.Default
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -52,9 +62,11 @@ public class Order {
     }
 
     public void calculateTotalAmount() {
-        this.totalAmount = items.stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long total = 0;
+        for (OrderItem item : items) {
+            total = Math.addExact(total, Math.multiplyExact(item.getPrice().minorUnits(), item.getQuantity()));
+        }
+        this.totalAmount = new Money(total);
     }
 
     public void addItem(OrderItem item) {
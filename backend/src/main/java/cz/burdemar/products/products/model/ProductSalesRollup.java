@@ -0,0 +1,36 @@
+package cz.burdemar.products.products.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Lifetime paid sales of one product.
+ */
+@Entity
+@Table(name = "product_sales_rollup")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesRollup {
+    @Id
+    private Long productId;
+
+    private long paidOrders;
+
+    private long paidUnits;
+
+    // Minor units, see Money
+    private long paidRevenue;
+
+    public void add(ProductSalesRollup other) {
+        paidOrders += other.paidOrders;
+        paidUnits += other.paidUnits;
+        paidRevenue += other.paidRevenue;
+    }
+}
@@ -0,0 +1,28 @@
+package cz.burdemar.products.products.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Records a deleted product so that clients syncing catalog changes learn about the deletion.
+ */
+@Entity
+@Table(name = "product_tombstones", indexes = {
+        @Index(name = "idx_product_tombstones_change_version", columnList = "change_version")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductTombstone {
+    @Id
+    private Long productId;
+
+    private Long changeVersion;
+}
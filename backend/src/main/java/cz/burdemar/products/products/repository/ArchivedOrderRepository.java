@@ -0,0 +1,27 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.dto.OrderLineView;
+import cz.burdemar.products.products.model.ArchivedOrder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+    String ORDER_LINE_PROJECTION = "SELECT new cz.burdemar.products.products.dto.OrderLineView(" +
+            "o.id, o.status, o.createdAt, o.expiryTime, o.paidAt, o.canceledAt, o.totalAmount, " +
+            "i.id, i.productId, i.productName, i.quantity, i.price) " +
+            "FROM ArchivedOrder o LEFT JOIN ArchivedOrderItem i ON i.orderId = o.id ";
+
+    @Query(ORDER_LINE_PROJECTION + "WHERE o.id = :orderId ORDER BY i.id")
+    List<OrderLineView> findOrderLines(Long orderId);
+
+    @Query(ORDER_LINE_PROJECTION + "ORDER BY o.id, i.id")
+    List<OrderLineView> findAllOrderLines();
+
+    @Query(ORDER_LINE_PROJECTION + "WHERE o.id IN :orderIds ORDER BY o.id, i.id")
+    List<OrderLineView> findOrderLinesByOrderIds(Collection<Long> orderIds);
+}
@@ -0,0 +1,9 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.model.CatalogEpoch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CatalogEpochRepository extends JpaRepository<CatalogEpoch, Integer> {
+}
@@ -0,0 +1,40 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+    /**
+     * Inserts the key, which fails if another request holds it, waiting first while that
+     * request's transaction is still open. Completed in the same transaction.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, scope, status_code, created_at) "
+            + "VALUES (:key, :scope, 0, :createdAt)", nativeQuery = true)
+    void claim(String key, String scope, LocalDateTime createdAt);
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.statusCode = :statusCode, r.responseBody = :responseBody "
+            + "WHERE r.idempotencyKey = :key")
+    void complete(String key, int statusCode, String responseBody);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key")
+    void release(String key);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND r.createdAt < :cutoff")
+    void deleteExpired(String key, LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+    int deleteOlderThan(LocalDateTime cutoff);
+}
@@ -0,0 +1,54 @@
+package cz.burdemar.products.products.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain SQL moving closed orders from the hot tables into the archive tables. Rows are copied
+ * with INSERT ... SELECT and deleted by id, so the database does all the work and only the
+ * moved rows are locked.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderArchivalRepository {
+    private static final String CLOSED = "('PAID', 'CANCELED', 'EXPIRED')";
+
+    private static final String FIND_ARCHIVABLE =
+            "SELECT id FROM orders WHERE status IN " + CLOSED + " AND created_at < :cutoff ORDER BY id LIMIT :limit";
+
+    private static final String COPY_ORDERS =
+            "INSERT INTO orders_archive (id, status, created_at, expiry_time, paid_at, canceled_at, total_amount) " +
+            "SELECT id, status, created_at, expiry_time, paid_at, canceled_at, total_amount " +
+            "FROM orders WHERE id IN (:ids)";
+
+    private static final String COPY_ITEMS =
+            "INSERT INTO order_items_archive (id, order_id, product_id, product_name, quantity, price) " +
+            "SELECT i.id, i.order_id, i.product_id, p.name, i.quantity, i.price " +
+            "FROM order_items i LEFT JOIN products p ON p.id = i.product_id WHERE i.order_id IN (:ids)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<Long> findArchivableIds(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.queryForList(FIND_ARCHIVABLE, new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(cutoff))
+                .addValue("limit", limit), Long.class);
+    }
+
+    /**
+     * Moves the given closed orders with their items. Must run inside the caller's transaction.
+     * Returns the number of orders moved.
+     */
+    public int moveToArchive(List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        jdbcTemplate.update(COPY_ORDERS, params);
+        jdbcTemplate.update(COPY_ITEMS, params);
+        jdbcTemplate.update("DELETE FROM order_items WHERE order_id IN (:ids)", params);
+        return jdbcTemplate.update("DELETE FROM orders WHERE id IN (:ids)", params);
+    }
+}
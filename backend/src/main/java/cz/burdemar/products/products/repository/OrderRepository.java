@@ -1,17 +1,60 @@
 package cz.burdemar.products.products.repository;
 
+import cz.burdemar.products.products.dto.OrderLineView;
 import cz.burdemar.products.products.model.Order;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    String ORDER_LINE_PROJECTION = "SELECT new cz.burdemar.products.products.dto.OrderLineView(" +
+            "o.id, o.status, o.createdAt, o.expiryTime, o.paidAt, o.canceledAt, o.totalAmount, " +
+            "i.id, p.id, p.name, i.quantity, i.price) " +
+            "FROM Order o LEFT JOIN o.items i LEFT JOIN i.product p ";
+
+    @Query(ORDER_LINE_PROJECTION + "ORDER BY o.id, i.id")
+    List<OrderLineView> findAllOrderLines();
+
+    @Query(ORDER_LINE_PROJECTION + "WHERE o.id IN :orderIds ORDER BY o.id, i.id")
+    List<OrderLineView> findOrderLinesByOrderIds(Collection<Long> orderIds);
+
+    boolean existsByStatusInAndItemsProductId(Collection<Order.OrderStatus> statuses, Long productId);
+
     List<Order> findByStatusAndExpiryTimeBefore(Order.OrderStatus status, LocalDateTime time);
 
-    @Query("SELECT o FROM Order o WHERE o.status = 'PENDING' AND o.expiryTime < :now")
-    List<Order> findExpiredOrders(LocalDateTime now);
+    long countByStatusAndExpiryTimeBefore(Order.OrderStatus status, LocalDateTime time);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status = 'PENDING' AND o.expiryTime < :now")
+    List<Long> findExpiredOrderIds(LocalDateTime now);
+
+    @Query("SELECT o.status FROM Order o WHERE o.id = :id")
+    Optional<Order.OrderStatus> findStatusById(Long id);
+
+    @Query("SELECT o.id, o.status FROM Order o WHERE o.id IN :ids")
+    List<Object[]> findStatusesByIds(Collection<Long> ids);
+
+    /*
+     * Compare-and-set transitions out of PENDING: the affected-row count tells whether this call
+     * won the transition, so concurrent pay, cancel and expiry can never both succeed.
+     */
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'PAID', o.paidAt = :now " +
+            "WHERE o.id = :id AND o.status = 'PENDING' AND o.expiryTime > :now")
+    int markPaid(Long id, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'CANCELED', o.canceledAt = :now WHERE o.id = :id AND o.status = 'PENDING'")
+    int markCanceled(Long id, LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = 'EXPIRED' WHERE o.id = :id AND o.status = 'PENDING'")
+    int markExpired(Long id);
 }
\ No newline at end of file
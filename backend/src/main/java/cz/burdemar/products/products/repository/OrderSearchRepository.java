@@ -0,0 +1,58 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.model.ArchivedOrder;
+import cz.burdemar.products.products.model.Order;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Keyset-paged id search over orders, hot or archived. Callers ask for one row more than the page
+ * size to learn whether a next page exists, so no COUNT(*) is ever issued.
+ */
+@Repository
+public class OrderSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Returns ids of matching orders, newest first, strictly below {@code afterId} when given.
+     */
+    public List<Long> findIds(Specification<Order> specification, Long afterId, int limit) {
+        return findIds(Order.class, specification, afterId, limit);
+    }
+
+    /**
+     * Same as {@link #findIds} over the archive table.
+     */
+    public List<Long> findArchivedIds(Specification<ArchivedOrder> specification, Long afterId, int limit) {
+        return findIds(ArchivedOrder.class, specification, afterId, limit);
+    }
+
+    private <T> List<Long> findIds(Class<T> entity, Specification<T> specification, Long afterId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> order = query.from(entity);
+
+        Predicate predicate = specification.toPredicate(order, query, cb);
+        if (afterId != null) {
+            predicate = cb.and(predicate, cb.lessThan(order.<Long>get("id"), afterId));
+        }
+
+        query.select(order.<Long>get("id"))
+                .where(predicate)
+                .orderBy(cb.desc(order.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
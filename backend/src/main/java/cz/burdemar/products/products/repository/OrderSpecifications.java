@@ -0,0 +1,98 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.dto.OrderSearchCriteria;
+import cz.burdemar.products.products.model.ArchivedOrder;
+import cz.burdemar.products.products.model.ArchivedOrderItem;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.model.OrderItem;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> matching(OrderSearchCriteria criteria) {
+        // Converted up front, so that invalid bounds are rejected before any query runs
+        Money minTotal = totalBound(criteria.getMinTotal());
+        Money maxTotal = totalBound(criteria.getMaxTotal());
+        return (order, query, cb) -> {
+            List<Predicate> predicates = orderPredicates(criteria, minTotal, maxTotal, order, cb);
+            if (criteria.getProductId() != null) {
+                // EXISTS keeps one row per order and probes the (product_id, order_id) index
+                Subquery<Long> items = query.subquery(Long.class);
+                Root<OrderItem> item = items.from(OrderItem.class);
+                items.select(item.<Long>get("id"))
+                        .where(cb.equal(item.get("order"), order),
+                                cb.equal(item.get("product").get("id"), criteria.getProductId()));
+                predicates.add(cb.exists(items));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Same filter over the archive, whose items refer to orders and products by id.
+     */
+    public static Specification<ArchivedOrder> matchingArchived(OrderSearchCriteria criteria) {
+        Money minTotal = totalBound(criteria.getMinTotal());
+        Money maxTotal = totalBound(criteria.getMaxTotal());
+        return (order, query, cb) -> {
+            List<Predicate> predicates = orderPredicates(criteria, minTotal, maxTotal, order, cb);
+            if (criteria.getProductId() != null) {
+                Subquery<Long> items = query.subquery(Long.class);
+                Root<ArchivedOrderItem> item = items.from(ArchivedOrderItem.class);
+                items.select(item.<Long>get("id"))
+                        .where(cb.equal(item.get("orderId"), order.get("id")),
+                                cb.equal(item.get("productId"), criteria.getProductId()));
+                predicates.add(cb.exists(items));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    private static List<Predicate> orderPredicates(OrderSearchCriteria criteria, Money minTotal, Money maxTotal,
+                                                   Root<?> order, CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (criteria.getStatus() != null) {
+            predicates.add(cb.equal(order.get("status"), criteria.getStatus()));
+        }
+        if (criteria.getCreatedFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.<LocalDateTime>get("createdAt"), criteria.getCreatedFrom()));
+        }
+        if (criteria.getCreatedTo() != null) {
+            predicates.add(cb.lessThan(order.<LocalDateTime>get("createdAt"), criteria.getCreatedTo()));
+        }
+        if (minTotal != null) {
+            predicates.add(cb.greaterThanOrEqualTo(order.<Money>get("totalAmount"), minTotal));
+        }
+        if (maxTotal != null) {
+            predicates.add(cb.lessThanOrEqualTo(order.<Money>get("totalAmount"), maxTotal));
+        }
+        return predicates;
+    }
+
+    private static Money totalBound(BigDecimal total) {
+        if (total == null) {
+            return null;
+        }
+        try {
+            return Money.of(total);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Total bounds must have at most " + Money.SCALE + " decimal places");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package cz.burdemar.products.products.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Batched UPDATE statement for bulk restocking and repricing. Callers pass rows sorted by
+ * product id so that row locks are taken in the same order as checkout takes them; stock and
+ * price go through the same statement, as a second pass over the same chunk would take its
+ * locks out of that order.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductBulkUpdateRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    /**
+     * Applies {@code [stockDelta, price, productId]} rows, where a null delta or price leaves
+     * that column unchanged, skipping rows whose delta would make the stock negative.
+     * Returns whether each row was applied.
+     */
+    public boolean[] applyUpdates(List<Object[]> rows, long changeVersion) {
+        if (rows.isEmpty()) {
+            return new boolean[0];
+        }
+        return applied(jdbcTemplate.batchUpdate(
+                "UPDATE products SET stock_quantity = stock_quantity + ?, price = COALESCE(?, price), " +
+                "change_version = ? WHERE id = ? AND stock_quantity + ? >= 0",
+                rows.stream().map(row -> {
+                    int stockDelta = row[0] == null ? 0 : (Integer) row[0];
+                    return new Object[]{stockDelta, row[1], changeVersion, row[2], stockDelta};
+                }).toList()));
+    }
+
+    public Set<Long> findExistingIds(Collection<Long> ids) {
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT id FROM products WHERE id IN (:ids)", Map.of("ids", ids), Long.class));
+    }
+
+    private static boolean[] applied(int[] counts) {
+        boolean[] applied = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            // Drivers that do not report per-row counts only tell that the statement succeeded
+            applied[i] = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+        }
+        return applied;
+    }
+}
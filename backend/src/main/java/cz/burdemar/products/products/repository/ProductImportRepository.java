@@ -0,0 +1,32 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.catalog.ProductChangeVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Inserts imported products with JDBC batches. Hibernate cannot batch inserts of IDENTITY keyed
+ * entities, and an import has no use for the managed entities anyway.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ProductImportRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductChangeVersions changeVersions;
+
+    /**
+     * Inserts rows of {@code [name, price, stockQuantity]} in one transaction and returns the
+     * change version the inserted products carry.
+     */
+    @Transactional
+    public long insertAll(List<Object[]> rows) {
+        long changeVersion = changeVersions.current();
+        jdbcTemplate.batchUpdate("INSERT INTO products (name, price, stock_quantity, change_version) VALUES (?, ?, ?, ?)",
+                rows.stream().map(row -> new Object[]{row[0], row[1], row[2], changeVersion}).toList());
+        return changeVersion;
+    }
+}
@@ -1,15 +1,46 @@
 package cz.burdemar.products.products.repository;
 
 import cz.burdemar.products.products.model.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     Optional<Product> findWithLockById(Long id);
+
+    @Query("SELECT p FROM Product p WHERE p.changeVersion > :since AND p.changeVersion <= :upTo ORDER BY p.id")
+    List<Product> findChanged(long since, long upTo);
+
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findPageAfter(long afterId, Pageable pageable);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findIdsAndNamesAfter(long afterId, Pageable pageable);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findIdsAndNamesByIds(Collection<Long> ids);
+
+    @Query("SELECT p.id, p.name FROM Product p WHERE p.changeVersion = :changeVersion")
+    List<Object[]> findIdsAndNamesByChangeVersion(long changeVersion);
+
+    @Query("SELECT p.id, p.price, p.stockQuantity FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findPricesAndStockAfter(long afterId, Pageable pageable);
+
+    @Query("SELECT p.id, p.price, p.stockQuantity FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findPricesAndStockByIds(Collection<Long> ids);
+
+    @Query("SELECT p.id, p.price, p.stockQuantity FROM Product p WHERE p.changeVersion = :changeVersion")
+    List<Object[]> findPricesAndStockByChangeVersion(long changeVersion);
+
+    @Query("SELECT MAX(p.changeVersion) FROM Product p")
+    Long findMaxChangeVersion();
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Offset-paged id search over products ordered by name, for the filters the in-memory
+ * {@code ProductPriceIndex} does not serve.
+ */
+@Repository
+public class ProductSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Returns ids of products priced within the given bounds (each optional and inclusive),
+     * optionally only those in stock, ordered by name and then id.
+     */
+    public List<Long> findIdsOrderedByName(Money minPrice, Money maxPrice, boolean inStock, int offset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> product = query.from(Product.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (minPrice != null) {
+            predicates.add(cb.greaterThanOrEqualTo(product.<Money>get("price"), minPrice));
+        }
+        if (maxPrice != null) {
+            predicates.add(cb.lessThanOrEqualTo(product.<Money>get("price"), maxPrice));
+        }
+        if (inStock) {
+            predicates.add(cb.greaterThan(product.<Integer>get("stockQuantity"), 0));
+        }
+
+        query.select(product.<Long>get("id"))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(cb.asc(product.get("name")), cb.asc(product.get("id")));
+
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,17 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.model.ProductTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductTombstoneRepository extends JpaRepository<ProductTombstone, Long> {
+    @Query("SELECT t.productId FROM ProductTombstone t WHERE t.changeVersion > :since AND t.changeVersion <= :upTo")
+    List<Long> findDeletedProductIds(long since, long upTo);
+
+    @Query("SELECT MAX(t.changeVersion) FROM ProductTombstone t")
+    Long findMaxChangeVersion();
+}
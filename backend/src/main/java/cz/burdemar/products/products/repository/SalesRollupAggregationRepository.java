@@ -0,0 +1,165 @@
+package cz.burdemar.products.products.repository;
+
+import cz.burdemar.products.products.model.DailySalesRollup;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.model.ProductSalesRollup;
+import cz.burdemar.products.products.stats.SalesRollupSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain SQL over the order tables used to rebuild the sales rollups from scratch. Aggregation
+ * works on an order id range so that ranges can be processed in parallel. Hot and archived
+ * orders are read together, an order being in exactly one of them at any time.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SalesRollupAggregationRepository {
+    private static final String ORDER_COLUMNS = "id, status, created_at, expiry_time, paid_at, canceled_at, total_amount";
+
+    private static final String ALL_ORDERS =
+            "(SELECT " + ORDER_COLUMNS + " FROM orders UNION ALL SELECT " + ORDER_COLUMNS + " FROM orders_archive)";
+
+    private static final String ALL_ORDER_ITEMS =
+            "(SELECT order_id, product_id, quantity, price FROM order_items " +
+            "UNION ALL SELECT order_id, product_id, quantity, price FROM order_items_archive)";
+
+    private static final String TOTAL_STATUS_COUNTS =
+            "SELECT status, COUNT(*) FROM " + ALL_ORDERS + " a GROUP BY status";
+
+    private static final String STATUS_COUNTS =
+            "SELECT status, COUNT(*) FROM " + ALL_ORDERS + " a WHERE id >= ? AND id < ? GROUP BY status";
+
+    private static final String CREATED_PER_DAY =
+            "SELECT t.day, COUNT(*) FROM (" +
+            "SELECT CAST(created_at AS DATE) AS day FROM " + ALL_ORDERS + " a WHERE id >= ? AND id < ?" +
+            ") t GROUP BY t.day";
+
+    // Closed orders are counted on the day of their last transition
+    private static final String CLOSED_PER_DAY =
+            "SELECT t.status, t.day, COUNT(*), SUM(t.total_amount) FROM (" +
+            "SELECT status, total_amount, CAST(CASE status WHEN 'PAID' THEN paid_at " +
+            "WHEN 'CANCELED' THEN canceled_at ELSE expiry_time END AS DATE) AS day " +
+            "FROM " + ALL_ORDERS + " a WHERE id >= ? AND id < ? AND status IN ('PAID', 'CANCELED', 'EXPIRED')" +
+            ") t GROUP BY t.status, t.day";
+
+    private static final String PAID_ITEMS_PER_DAY_AND_PRODUCT =
+            "SELECT t.day, t.product_id, SUM(t.quantity), SUM(t.price * t.quantity), COUNT(DISTINCT t.order_id) FROM (" +
+            "SELECT CAST(o.paid_at AS DATE) AS day, i.product_id, i.quantity, i.price, o.id AS order_id " +
+            "FROM " + ALL_ORDERS + " o JOIN " + ALL_ORDER_ITEMS + " i ON i.order_id = o.id " +
+            "WHERE o.status = 'PAID' AND o.id >= ? AND o.id < ?" +
+            ") t GROUP BY t.day, t.product_id";
+
+    private static final String ORDER_STATUSES =
+            "SELECT id, status FROM " + ALL_ORDERS + " a WHERE id >= ? AND id < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Returns {@code [min, max]} of the order ids, or null when there are no orders.
+     */
+    public long[] findOrderIdBounds() {
+        return jdbcTemplate.query("SELECT MIN(id), MAX(id) FROM " + ALL_ORDERS + " a", rs -> {
+            rs.next();
+            long min = rs.getLong(1);
+            return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+        });
+    }
+
+    /**
+     * Returns the smallest id of a pending order, or null when no order is pending. Orders below it
+     * are closed and will not change any more.
+     */
+    public Long findOldestPendingOrderId() {
+        return jdbcTemplate.queryForObject("SELECT MIN(id) FROM orders WHERE status = 'PENDING'", Long.class);
+    }
+
+    public Map<Order.OrderStatus, Long> countOrdersByStatus() {
+        Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+        jdbcTemplate.query(TOTAL_STATUS_COUNTS, rs -> {
+            counts.put(Order.OrderStatus.valueOf(rs.getString(1)), rs.getLong(2));
+        });
+        return counts;
+    }
+
+    /**
+     * Aggregates orders with {@code fromId <= id < toId} and records the status of those with
+     * {@code id >= openFromId}. Run it in a repeatable-read transaction so that both agree.
+     */
+    public SalesRollupSnapshot aggregate(long fromId, long toId, long openFromId) {
+        SalesRollupSnapshot snapshot = new SalesRollupSnapshot();
+
+        jdbcTemplate.query(STATUS_COUNTS, rs -> {
+            snapshot.addStatusCount(Order.OrderStatus.valueOf(rs.getString(1)), rs.getLong(2));
+        }, fromId, toId);
+
+        jdbcTemplate.query(CREATED_PER_DAY, rs -> {
+            snapshot.day(rs.getDate(1).toLocalDate()).setCreatedOrders(rs.getLong(2));
+        }, fromId, toId);
+
+        jdbcTemplate.query(CLOSED_PER_DAY, rs -> {
+            DailySalesRollup day = snapshot.day(rs.getDate(2).toLocalDate());
+            long count = rs.getLong(3);
+            switch (Order.OrderStatus.valueOf(rs.getString(1))) {
+                case PAID -> {
+                    day.setPaidOrders(count);
+                    day.setPaidRevenue(Money.of(rs.getBigDecimal(4)).minorUnits());
+                }
+                case CANCELED -> day.setCanceledOrders(count);
+                case EXPIRED -> day.setExpiredOrders(count);
+                default -> throw new IllegalStateException("Unexpected closed status " + rs.getString(1));
+            }
+        }, fromId, toId);
+
+        jdbcTemplate.query(PAID_ITEMS_PER_DAY_AND_PRODUCT, rs -> {
+            long units = rs.getLong(3);
+            DailySalesRollup day = snapshot.day(rs.getDate(1).toLocalDate());
+            day.setPaidUnits(day.getPaidUnits() + units);
+            snapshot.product(rs.getLong(2)).add(ProductSalesRollup.builder()
+                    .paidUnits(units)
+                    .paidRevenue(Money.of(rs.getBigDecimal(4)).minorUnits())
+                    .paidOrders(rs.getLong(5))
+                    .build());
+        }, fromId, toId);
+
+        if (openFromId < toId) {
+            jdbcTemplate.query(ORDER_STATUSES, rs -> {
+                snapshot.getOpenOrderStatuses().put(rs.getLong(1), Order.OrderStatus.valueOf(rs.getString(2)));
+            }, Math.max(fromId, openFromId), toId);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Replaces the content of both rollup tables. Must run inside the caller's transaction.
+     */
+    public void replaceRollups(SalesRollupSnapshot snapshot) {
+        jdbcTemplate.update("DELETE FROM daily_sales_rollup");
+        jdbcTemplate.update("DELETE FROM product_sales_rollup");
+
+        List<Object[]> days = new ArrayList<>();
+        for (DailySalesRollup day : snapshot.getDays().values()) {
+            days.add(new Object[]{Date.valueOf(day.getSalesDate()), day.getCreatedOrders(), day.getPaidOrders(),
+                    day.getCanceledOrders(), day.getExpiredOrders(), day.getPaidUnits(), day.getPaidRevenue()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO daily_sales_rollup (sales_date, created_orders, paid_orders, " +
+                "canceled_orders, expired_orders, paid_units, paid_revenue) VALUES (?, ?, ?, ?, ?, ?, ?)", days);
+
+        List<Object[]> products = new ArrayList<>();
+        for (Map.Entry<Long, ProductSalesRollup> entry : snapshot.getProducts().entrySet()) {
+            ProductSalesRollup product = entry.getValue();
+            products.add(new Object[]{entry.getKey(), product.getPaidOrders(), product.getPaidUnits(), product.getPaidRevenue()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO product_sales_rollup (product_id, paid_orders, paid_units, paid_revenue) " +
+                "VALUES (?, ?, ?, ?)", products);
+    }
+}
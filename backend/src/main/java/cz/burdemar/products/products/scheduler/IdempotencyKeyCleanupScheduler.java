@@ -0,0 +1,21 @@
+package cz.burdemar.products.products.scheduler;
+
+import cz.burdemar.products.products.service.IdempotencyService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyKeyCleanupScheduler {
+    private final IdempotencyService idempotencyService;
+
+    // Run every hour to drop keys past their retention
+    @Scheduled(fixedRate = 3600000)
+    public void purgeExpiredKeys() {
+        int purged = idempotencyService.purgeExpiredKeys();
+        log.info("Purged {} expired idempotency keys", purged);
+    }
+}
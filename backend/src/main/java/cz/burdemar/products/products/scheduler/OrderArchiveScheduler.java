@@ -0,0 +1,27 @@
+package cz.burdemar.products.products.scheduler;
+
+import cz.burdemar.products.products.service.OrderArchiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderArchiveScheduler {
+    private final OrderArchiveService orderArchiveService;
+
+    @Scheduled(fixedDelayString = "${shop.archive.interval:3600000}")
+    public void archiveClosedOrders() {
+        int total = 0;
+        int moved;
+        // One transaction per batch so row locks are released between batches
+        while ((moved = orderArchiveService.archiveBatch()) > 0) {
+            total += moved;
+        }
+        if (total > 0) {
+            log.info("Archived {} closed orders", total);
+        }
+    }
+}
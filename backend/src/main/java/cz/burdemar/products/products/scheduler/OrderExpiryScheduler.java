@@ -1,5 +1,6 @@
 package cz.burdemar.products.products.scheduler;
 
+import cz.burdemar.products.products.metrics.ShopMetrics;
 import cz.burdemar.products.products.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,11 +12,12 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class OrderExpiryScheduler {
     private final OrderService orderService;
+    private final ShopMetrics shopMetrics;
 
     // Run every minute to check for expired orders
     @Scheduled(fixedRate = 60000)
     public void checkExpiredOrders() {
         log.info("Checking for expired orders...");
-        orderService.processExpiredOrders();
+        shopMetrics.getExpiryRunTimer().record(orderService::processExpiredOrders);
     }
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package cz.burdemar.products.products.scheduler;
+
+import cz.burdemar.products.products.service.SalesStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SalesRollupFlushScheduler {
+    private final SalesStatsService salesStatsService;
+
+    @Scheduled(fixedDelayString = "${shop.stats.flush-interval:1000}")
+    public void flushRollups() {
+        int applied = salesStatsService.flushPendingEvents();
+        if (applied > 0) {
+            log.debug("Applied {} order transitions to sales rollups", applied);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.BulkOrderOutcome;
+import cz.burdemar.products.products.dto.BulkOrderResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pays or cancels many orders for back-office staff. Orders are processed in chunks, each in its
+ * own transaction, so one failing chunk does not roll back the others and row locks are held
+ * only for the duration of a chunk.
+ */
+@Service
+@Slf4j
+public class BulkOrderService {
+    private final OrderService orderService;
+    private final int chunkSize;
+
+    public BulkOrderService(OrderService orderService,
+                            @Value("${shop.orders.bulk.chunk-size:100}") int chunkSize) {
+        this.orderService = orderService;
+        this.chunkSize = chunkSize;
+    }
+
+    public BulkOrderResult cancelOrders(List<Long> orderIds) {
+        return process(orderIds, orderService::cancelOrders);
+    }
+
+    public BulkOrderResult payOrders(List<Long> orderIds) {
+        return process(orderIds, orderService::payOrders);
+    }
+
+    private BulkOrderResult process(List<Long> orderIds, Function<List<Long>, List<BulkOrderOutcome>> processChunk) {
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(orderIds));
+        List<BulkOrderOutcome> outcomes = new ArrayList<>(ids.size());
+
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            try {
+                outcomes.addAll(processChunk.apply(chunk));
+            } catch (RuntimeException e) {
+                log.warn("Bulk operation on {} orders failed and was rolled back", chunk.size(), e);
+                for (Long id : chunk) {
+                    outcomes.add(BulkOrderOutcome.builder()
+                            .orderId(id)
+                            .result(BulkOrderOutcome.Result.FAILED)
+                            .message(e.getMessage())
+                            .build());
+                }
+            }
+        }
+
+        int succeeded = (int) outcomes.stream()
+                .filter(outcome -> outcome.getResult() == BulkOrderOutcome.Result.SUCCEEDED)
+                .count();
+        return BulkOrderResult.builder()
+                .succeeded(succeeded)
+                .failed(outcomes.size() - succeeded)
+                .outcomes(outcomes)
+                .build();
+    }
+}
@@ -0,0 +1,85 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.ProductBulkUpdateRequest;
+import cz.burdemar.products.products.dto.ProductBulkUpdateResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Applies restock and repricing feeds. Updates are merged per product, sorted by product id and
+ * applied in chunks, each in its own transaction, so that a feed of thousands of updates holds
+ * row locks only briefly and always in the order checkout takes them.
+ */
+@Service
+@Slf4j
+public class BulkProductService {
+    private final ProductService productService;
+    private final int chunkSize;
+
+    public BulkProductService(ProductService productService,
+                              @Value("${shop.products.bulk.chunk-size:500}") int chunkSize) {
+        this.productService = productService;
+        this.chunkSize = chunkSize;
+    }
+
+    public ProductBulkUpdateResult applyUpdates(List<ProductBulkUpdateRequest.Update> updates) {
+        List<ProductBulkUpdateResult.Failure> failures = new ArrayList<>();
+        TreeMap<Long, ProductBulkUpdateRequest.Update> merged = new TreeMap<>();
+        for (ProductBulkUpdateRequest.Update update : updates) {
+            if (update.getStockDelta() == null && update.getPrice() == null) {
+                failures.add(new ProductBulkUpdateResult.Failure(update.getProductId(),
+                        ProductBulkUpdateResult.Reason.EMPTY_UPDATE, "Either stockDelta or price is required"));
+            } else {
+                merged.merge(update.getProductId(), update, BulkProductService::combine);
+            }
+        }
+
+        List<ProductBulkUpdateRequest.Update> sorted = new ArrayList<>(merged.values());
+        int updated = 0;
+        for (int from = 0; from < sorted.size(); from += chunkSize) {
+            List<ProductBulkUpdateRequest.Update> chunk = sorted.subList(from, Math.min(from + chunkSize, sorted.size()));
+            try {
+                List<ProductBulkUpdateResult.Failure> chunkFailures = productService.applyBulkUpdates(chunk);
+                failures.addAll(chunkFailures);
+                updated += chunk.size() - chunkFailures.size();
+            } catch (RuntimeException e) {
+                log.warn("Bulk update of {} products failed and was rolled back", chunk.size(), e);
+                for (ProductBulkUpdateRequest.Update update : chunk) {
+                    failures.add(new ProductBulkUpdateResult.Failure(update.getProductId(),
+                            ProductBulkUpdateResult.Reason.FAILED, e.getMessage()));
+                }
+            }
+        }
+
+        return ProductBulkUpdateResult.builder()
+                .updated(updated)
+                .failures(failures)
+                .build();
+    }
+
+    /**
+     * Stock deltas of the same product add up, the later price wins. A sum that overflows rejects
+     * the whole feed before anything is applied.
+     */
+    private static ProductBulkUpdateRequest.Update combine(ProductBulkUpdateRequest.Update first,
+                                                           ProductBulkUpdateRequest.Update second) {
+        Integer stockDelta = first.getStockDelta() == null ? second.getStockDelta()
+                : second.getStockDelta() == null ? first.getStockDelta()
+                : Integer.valueOf(addStockDeltas(first.getProductId(), first.getStockDelta(), second.getStockDelta()));
+        return new ProductBulkUpdateRequest.Update(first.getProductId(), stockDelta,
+                second.getPrice() != null ? second.getPrice() : first.getPrice());
+    }
+
+    private static int addStockDeltas(Long productId, int first, int second) {
+        try {
+            return Math.addExact(first, second);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Stock deltas for product " + productId + " add up beyond the supported range");
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package cz.burdemar.products.products.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.burdemar.products.products.cache.LruCache;
+import cz.burdemar.products.products.exception.IdempotencyKeyConflictException;
+import cz.burdemar.products.products.model.IdempotencyRecord;
+import cz.burdemar.products.products.repository.IdempotencyRecordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executes a request at most once per {@code Idempotency-Key}. Successful responses are kept in
+ * a bounded in-memory cache backed by the {@code idempotency_keys} table and replayed for
+ * duplicates; concurrent duplicates wait for the in-flight execution instead of running it again.
+ * Failed executions are not stored, so the client may retry them with the same key.
+ * <p>
+ * The key is inserted in the transaction of the request itself, before it runs, so the key
+ * commits if and only if the request's changes do, and a duplicate on another node waits for the
+ * insert and then replays the stored response.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final LruCache<String, IdempotencyRecord> completed;
+    private final ConcurrentHashMap<String, CompletableFuture<IdempotencyRecord>> inFlight = new ConcurrentHashMap<>();
+    private final Duration retention;
+    private final Duration waitTimeout;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${shop.idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${shop.idempotency.retention:24h}") Duration retention,
+                              @Value("${shop.idempotency.wait-timeout:10s}") Duration waitTimeout) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.completed = new LruCache<>(cacheSize);
+        this.retention = retention;
+        this.waitTimeout = waitTimeout;
+    }
+
+    public <T> ResponseEntity<T> execute(String key, String scope, HttpStatus status, Class<T> type, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return new ResponseEntity<>(action.get(), status);
+        }
+
+        IdempotencyRecord stored = lookup(key);
+        if (stored != null) {
+            return replay(stored, scope, type);
+        }
+
+        CompletableFuture<IdempotencyRecord> execution = new CompletableFuture<>();
+        CompletableFuture<IdempotencyRecord> running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            return replay(await(running), scope, type);
+        }
+
+        try {
+            // The previous holder of the key may have finished between the lookup and putIfAbsent
+            stored = lookup(key);
+            if (stored != null) {
+                execution.complete(stored);
+                return replay(stored, scope, type);
+            }
+
+            IdempotencyRecord record = IdempotencyRecord.builder()
+                    .idempotencyKey(key)
+                    .scope(scope)
+                    .statusCode(status.value())
+                    .createdAt(LocalDateTime.now())
+                    .build();
+            Outcome<T> outcome;
+            try {
+                outcome = transactionTemplate.execute(transaction -> run(record, action, transaction));
+            } catch (KeyTakenException e) {
+                stored = idempotencyRecordRepository.findById(key)
+                        .orElseThrow(() -> new IdempotencyKeyConflictException(HttpStatus.CONFLICT,
+                                "A request with this Idempotency-Key is still being processed"));
+                completed.put(key, stored);
+                execution.complete(stored);
+                return replay(stored, scope, type);
+            }
+            if (outcome.failure() != null) {
+                throw outcome.failure();
+            }
+            completed.put(key, record);
+            execution.complete(record);
+            return new ResponseEntity<>(outcome.result(), status);
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+
+    /**
+     * Returns the scope of a request with a body: the operation and a hash of the body, so that
+     * reusing a key with a different body is rejected instead of replaying the first response.
+     */
+    public String scope(String operation, Object body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(body));
+            return operation + " " + HexFormat.of().formatHex(hash);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Request cannot be hashed for Idempotency-Key", e);
+        }
+    }
+
+    public int purgeExpiredKeys() {
+        return idempotencyRecordRepository.deleteOlderThan(LocalDateTime.now().minus(retention));
+    }
+
+    private IdempotencyRecord lookup(String key) {
+        IdempotencyRecord record = completed.get(key);
+        if (record == null) {
+            record = idempotencyRecordRepository.findById(key).orElse(null);
+            if (record == null) {
+                return null;
+            }
+            completed.put(key, record);
+        }
+        if (record.getCreatedAt().isBefore(LocalDateTime.now().minus(retention))) {
+            completed.remove(key);
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Claims the key, runs the action and stores its response, all in one transaction.
+     */
+    private <T> Outcome<T> run(IdempotencyRecord record, Supplier<T> action, TransactionStatus transaction) {
+        String key = record.getIdempotencyKey();
+        try {
+            idempotencyRecordRepository.deleteExpired(key, LocalDateTime.now().minus(retention));
+            idempotencyRecordRepository.claim(key, record.getScope(), record.getCreatedAt());
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            throw new KeyTakenException(e);
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            if (transaction.isRollbackOnly()) {
+                throw e;
+            }
+            // The action chose to commit despite failing, e.g. expiring an unpaid order; the key stays free
+            idempotencyRecordRepository.release(key);
+            return new Outcome<>(null, e);
+        }
+        record.setResponseBody(serialize(result));
+        idempotencyRecordRepository.complete(key, record.getStatusCode(), record.getResponseBody());
+        return new Outcome<>(result, null);
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> running) {
+        try {
+            return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Original request with this Idempotency-Key failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyConflictException(HttpStatus.CONFLICT,
+                    "A request with this Idempotency-Key is still being processed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", e);
+        }
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, String scope, Class<T> type) {
+        if (!record.getScope().equals(scope)) {
+            throw new IdempotencyKeyConflictException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+        try {
+            return ResponseEntity.status(record.getStatusCode())
+                    .header(REPLAYED_HEADER, "true")
+                    .body(objectMapper.readValue(record.getResponseBody(), type));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response for Idempotency-Key cannot be read", e);
+        }
+    }
+
+    private record Outcome<T>(T result, RuntimeException failure) {
+    }
+
+    // Another request inserted the key first
+    private static final class KeyTakenException extends RuntimeException {
+        KeyTakenException(Throwable cause) {
+            super(cause);
+        }
+    }
+
+    private String serialize(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response cannot be stored for Idempotency-Key", e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.repository.OrderArchivalRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves paid, canceled and expired orders older than {@code shop.archive.min-age} out of the hot
+ * order tables. Closed orders never change again, so moving them is safe while the shop runs;
+ * each batch is a short transaction of its own.
+ */
+@Service
+public class OrderArchiveService {
+    private final OrderArchivalRepository orderArchivalRepository;
+    private final Duration minAge;
+    private final int batchSize;
+
+    public OrderArchiveService(OrderArchivalRepository orderArchivalRepository,
+                               @Value("${shop.archive.min-age:30d}") Duration minAge,
+                               @Value("${shop.archive.batch-size:500}") int batchSize) {
+        this.orderArchivalRepository = orderArchivalRepository;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives the oldest batch of eligible orders and returns how many were moved; zero once
+     * nothing is left to archive.
+     */
+    @Transactional
+    public int archiveBatch() {
+        List<Long> ids = orderArchivalRepository.findArchivableIds(LocalDateTime.now().minus(minAge), batchSize);
+        return ids.isEmpty() ? 0 : orderArchivalRepository.moveToArchive(ids);
+    }
+}
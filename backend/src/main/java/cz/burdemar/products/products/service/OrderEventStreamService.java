@@ -0,0 +1,44 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.event.OrderStatusChangedEvent;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.sse.SseBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Pushes committed order transitions to SSE subscribers of a single order and to the admin
+ * stream of all orders.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderEventStreamService {
+    private final SseBroadcaster<Long, OrderDTO> orderEventBroadcaster;
+    private final OrderService orderService;
+
+    /**
+     * Streams the order's current state followed by each of its transitions.
+     *
+     * @throws cz.burdemar.products.products.exception.ResourceNotFoundException if the order does not exist
+     */
+    public SseEmitter subscribe(Long orderId) {
+        return orderEventBroadcaster.subscribe(List.of(orderId), () -> List.of(orderService.getOrderById(orderId)));
+    }
+
+    /**
+     * Streams transitions of all orders, optionally only those entering {@code status}.
+     */
+    public SseEmitter subscribeAll(Order.OrderStatus status) {
+        return orderEventBroadcaster.subscribeAll(order -> status == null || order.getStatus() == status);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        orderEventBroadcaster.publish(event.order().getId(), event.order());
+    }
+}
@@ -1,41 +1,115 @@
 package cz.burdemar.products.products.service;
 
+import cz.burdemar.products.products.dto.BulkOrderOutcome;
 import cz.burdemar.products.products.dto.CreateOrderRequest;
 import cz.burdemar.products.products.dto.OrderDTO;
 import cz.burdemar.products.products.dto.OrderItemDTO;
+import cz.burdemar.products.products.dto.OrderLineView;
+import cz.burdemar.products.products.dto.OrderSearchCriteria;
+import cz.burdemar.products.products.dto.OrderSearchResult;
+import cz.burdemar.products.products.event.OrderStatusChangedEvent;
 import cz.burdemar.products.products.exception.ResourceNotFoundException;
+import cz.burdemar.products.products.metrics.ShopMetrics;
+import cz.burdemar.products.products.model.ArchivedOrder;
 import cz.burdemar.products.products.model.Order;
 import cz.burdemar.products.products.model.OrderItem;
 import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.repository.ArchivedOrderRepository;
 import cz.burdemar.products.products.repository.OrderRepository;
+import cz.burdemar.products.products.repository.OrderSearchRepository;
+import cz.burdemar.products.products.repository.OrderSpecifications;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class OrderService {
     private final OrderRepository orderRepository;
+    private final OrderSearchRepository orderSearchRepository;
+    private final ArchivedOrderRepository archivedOrderRepository;
     private final ProductService productService;
+    private final ShopMetrics shopMetrics;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final int ORDER_EXPIRY_MINUTES = 30;
+    private static final int MAX_SEARCH_PAGE_SIZE = 500;
+
+    /**
+     * Returns hot orders in id order; with {@code includeArchived}, closed orders moved to the
+     * archive are merged in as well.
+     */
+    @Transactional(readOnly = true)
+    public List<OrderDTO> getAllOrders(boolean includeArchived) {
+        List<OrderDTO> orders = toDTOs(orderRepository.findAllOrderLines());
+        if (includeArchived) {
+            orders.addAll(toDTOs(archivedOrderRepository.findAllOrderLines()));
+            orders.sort(Comparator.comparing(OrderDTO::getId));
+        }
+        return orders;
+    }
 
-    public List<OrderDTO> getAllOrders() {
-        List<Order> orders = orderRepository.findAll();
-        return orders.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    /**
+     * Searches hot orders, and the archive too when the criteria ask for it. Both tables are
+     * paged by the same id cursor, so their pages merge into one.
+     */
+    @Transactional(readOnly = true)
+    public OrderSearchResult searchOrders(OrderSearchCriteria criteria) {
+        int size = Math.max(1, Math.min(criteria.getSize(), MAX_SEARCH_PAGE_SIZE));
+
+        // Fetch one id more than requested to learn whether another page exists
+        List<Long> ids = orderSearchRepository.findIds(OrderSpecifications.matching(criteria),
+                criteria.getAfterId(), size + 1);
+        List<Long> archivedIds = criteria.isIncludeArchived()
+                ? orderSearchRepository.findArchivedIds(OrderSpecifications.matchingArchived(criteria),
+                        criteria.getAfterId(), size + 1)
+                : List.of();
+        if (!archivedIds.isEmpty()) {
+            ids = Stream.concat(ids.stream(), archivedIds.stream())
+                    .sorted(Comparator.reverseOrder())
+                    .limit(size + 1)
+                    .toList();
+        }
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+
+        List<OrderDTO> orders = pageIds.isEmpty()
+                ? new ArrayList<>()
+                : toDTOs(orderRepository.findOrderLinesByOrderIds(pageIds));
+        List<Long> archivedPageIds = archivedIds.stream().filter(pageIds::contains).toList();
+        if (!archivedPageIds.isEmpty()) {
+            orders.addAll(toDTOs(archivedOrderRepository.findOrderLinesByOrderIds(archivedPageIds)));
+            orders.sort(Comparator.comparing(OrderDTO::getId));
+        }
+        // Projection rows come in ascending id order, the search pages newest first
+        Collections.reverse(orders);
+
+        return OrderSearchResult.builder()
+                .orders(orders)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? pageIds.get(pageIds.size() - 1) : null)
+                .build();
     }
 
     @Transactional
     public OrderDTO createOrder(CreateOrderRequest request) {
+        return shopMetrics.getCreateOrderTimer().record(() -> doCreateOrder(request));
+    }
+
+    private OrderDTO doCreateOrder(CreateOrderRequest request) {
         // Get all product IDs from the request
         List<Long> productIds = request.getItems().stream()
                 .map(CreateOrderRequest.OrderItemRequest::getProductId)
@@ -78,79 +152,266 @@ public class OrderService {
         order.calculateTotalAmount();
 
         Order savedOrder = orderRepository.save(order);
-        return toDTO(savedOrder);
+        return publishStatusChange(savedOrder, null);
     }
 
-    @Transactional
+    /**
+     * Looks the order up in the hot table first and falls back to the archive, where closed
+     * orders are moved once they are old enough.
+     */
+    @Transactional(readOnly = true)
     public OrderDTO getOrderById(Long id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        Optional<Order> order = orderRepository.findById(id);
+        if (order.isPresent()) {
+            return toDTO(order.get());
+        }
 
-        return toDTO(order);
+        List<OrderDTO> archived = toDTOs(archivedOrderRepository.findOrderLines(id));
+        if (archived.isEmpty()) {
+            throw new ResourceNotFoundException("Order not found with id: " + id);
+        }
+        return archived.get(0);
     }
 
-    @Transactional
+    /**
+     * A payment that finds the order expired still commits the expiry before failing.
+     */
+    @Transactional(noRollbackFor = IllegalStateException.class)
     public OrderDTO payOrder(Long id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        return shopMetrics.getPayOrderTimer().record(() -> doPayOrder(id));
+    }
 
-        // Check if order is in PENDING status
-        if (order.getStatus() != Order.OrderStatus.PENDING) {
-            throw new IllegalStateException("Cannot pay for an order that is not in PENDING status");
+    private OrderDTO doPayOrder(Long id) {
+        if (orderRepository.markPaid(id, LocalDateTime.now()) == 1) {
+            return publishStatusChange(loadOrder(id), Order.OrderStatus.PENDING);
         }
 
-        // Check if order is expired
-        if (order.getExpiryTime().isBefore(LocalDateTime.now())) {
-            // Automatically expire the order
-            expireOrder(order);
-            throw new IllegalStateException("Cannot pay for an expired order");
+        Order.OrderStatus status = findStatus(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        if (status != Order.OrderStatus.PENDING) {
+            throw new IllegalStateException("Cannot pay for an order that is not in PENDING status");
         }
 
-        // Update order status
-        order.setStatus(Order.OrderStatus.PAID);
-        order.setPaidAt(LocalDateTime.now());
-
-        Order savedOrder = orderRepository.save(order);
-        return toDTO(savedOrder);
+        // Still pending but the update did not match, so the order is past its expiry time
+        expireOrder(id);
+        throw new IllegalStateException("Cannot pay for an expired order");
     }
 
     @Transactional
     public OrderDTO cancelOrder(Long id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + id));
+        return shopMetrics.getCancelOrderTimer().record(() -> doCancelOrder(id));
+    }
 
-        // Check if order can be canceled
-        if (order.getStatus() != Order.OrderStatus.PENDING) {
+    private OrderDTO doCancelOrder(Long id) {
+        if (orderRepository.markCanceled(id, LocalDateTime.now()) == 0) {
+            if (findStatus(id).isEmpty()) {
+                throw new ResourceNotFoundException("Order not found with id: " + id);
+            }
             throw new IllegalStateException("Cannot cancel an order that is not in PENDING status");
         }
 
-        // Update order status
-        order.setStatus(Order.OrderStatus.CANCELED);
-        order.setCanceledAt(LocalDateTime.now());
+        return completeTransitions(List.of(id), true).get(0);
+    }
 
-        // Release reserved stock
-        productService.releaseStock(order.getItems());
+    /**
+     * Cancels a chunk of orders in one transaction. Each order is still moved by its own
+     * compare-and-set update, but stock of all canceled orders is released with a single update
+     * per product. Orders are updated in id order, as products are, so that overlapping bulk
+     * requests cannot deadlock. Outcomes are returned in the order of the given ids.
+     */
+    @Transactional
+    public List<BulkOrderOutcome> cancelOrders(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> canceled = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+        for (Long id : new TreeSet<>(ids)) {
+            (orderRepository.markCanceled(id, now) == 1 ? canceled : rejected).add(id);
+        }
 
-        Order savedOrder = orderRepository.save(order);
-        return toDTO(savedOrder);
+        Map<Long, BulkOrderOutcome> outcomes = new HashMap<>();
+        completeTransitions(canceled, true)
+                .forEach(order -> outcomes.put(order.getId(), outcome(order, BulkOrderOutcome.Result.SUCCEEDED)));
+        Map<Long, Order.OrderStatus> statuses = findStatuses(rejected);
+        for (Long id : rejected) {
+            outcomes.put(id, rejection(id, statuses.get(id), "cancel"));
+        }
+        return ids.stream().map(outcomes::get).toList();
     }
 
+    /**
+     * Pays a chunk of orders in one transaction. Orders found past their expiry time are expired
+     * instead, with their stock released in one update per product. Orders are updated in id
+     * order, like in {@link #cancelOrders}.
+     */
     @Transactional
-    public void processExpiredOrders() {
-        List<Order> expiredOrders = orderRepository.findExpiredOrders(LocalDateTime.now());
+    public List<BulkOrderOutcome> payOrders(List<Long> ids) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> paid = new ArrayList<>();
+        List<Long> rejected = new ArrayList<>();
+        for (Long id : new TreeSet<>(ids)) {
+            (orderRepository.markPaid(id, now) == 1 ? paid : rejected).add(id);
+        }
 
-        for (Order order : expiredOrders) {
-            expireOrder(order);
+        Map<Long, BulkOrderOutcome> outcomes = new HashMap<>();
+        List<Long> expired = new ArrayList<>();
+        Map<Long, Order.OrderStatus> statuses = findStatuses(rejected);
+        for (Long id : rejected) {
+            Order.OrderStatus status = statuses.get(id);
+            if (status == Order.OrderStatus.PENDING && orderRepository.markExpired(id) == 1) {
+                expired.add(id);
+            } else {
+                outcomes.put(id, rejection(id, status, "pay for"));
+            }
         }
+
+        completeTransitions(paid, false)
+                .forEach(order -> outcomes.put(order.getId(), outcome(order, BulkOrderOutcome.Result.SUCCEEDED)));
+        completeTransitions(expired, true)
+                .forEach(order -> outcomes.put(order.getId(), outcome(order, BulkOrderOutcome.Result.EXPIRED)));
+        return ids.stream().map(outcomes::get).toList();
     }
 
     @Transactional
-    public void expireOrder(Order order) {
-        order.setStatus(Order.OrderStatus.EXPIRED);
-        orderRepository.save(order);
+    public void processExpiredOrders() {
+        for (Long id : orderRepository.findExpiredOrderIds(LocalDateTime.now())) {
+            expireOrder(id);
+        }
+    }
 
-        // Release reserved stock
-        productService.releaseStock(order.getItems());
+    /**
+     * Expires the order if it is still pending and releases its stock. Returns whether this call
+     * performed the transition.
+     */
+    @Transactional
+    public boolean expireOrder(Long id) {
+        if (orderRepository.markExpired(id) == 0) {
+            return false;
+        }
+
+        completeTransitions(List.of(id), true);
+        return true;
+    }
+
+    /**
+     * Loads orders that this transaction has just moved out of PENDING, optionally releases their
+     * reserved stock and publishes their status changes.
+     */
+    private List<OrderDTO> completeTransitions(List<Long> ids, boolean releaseStock) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        List<OrderLineView> lines = orderRepository.findOrderLinesByOrderIds(ids);
+        if (releaseStock) {
+            productService.releaseStock(reservedQuantities(lines));
+        }
+        List<OrderDTO> orders = toDTOs(lines);
+        orders.forEach(order -> publishStatusChange(order, Order.OrderStatus.PENDING));
+        return orders;
+    }
+
+    private Optional<Order.OrderStatus> findStatus(Long id) {
+        return orderRepository.findStatusById(id)
+                .or(() -> archivedOrderRepository.findById(id).map(ArchivedOrder::getStatus));
+    }
+
+    private Map<Long, Order.OrderStatus> findStatuses(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Order.OrderStatus> statuses = orderRepository.findStatusesByIds(ids).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Order.OrderStatus) row[1], (a, b) -> a, HashMap::new));
+        if (statuses.size() < ids.size()) {
+            List<Long> missing = ids.stream().filter(id -> !statuses.containsKey(id)).toList();
+            archivedOrderRepository.findAllById(missing)
+                    .forEach(archived -> statuses.put(archived.getId(), archived.getStatus()));
+        }
+        return statuses;
+    }
+
+    private static BulkOrderOutcome outcome(OrderDTO order, BulkOrderOutcome.Result result) {
+        return BulkOrderOutcome.builder()
+                .orderId(order.getId())
+                .result(result)
+                .status(order.getStatus())
+                .build();
+    }
+
+    private static BulkOrderOutcome rejection(Long id, Order.OrderStatus status, String action) {
+        if (status == null) {
+            return BulkOrderOutcome.builder()
+                    .orderId(id)
+                    .result(BulkOrderOutcome.Result.NOT_FOUND)
+                    .message("Order not found with id: " + id)
+                    .build();
+        }
+        return BulkOrderOutcome.builder()
+                .orderId(id)
+                .result(BulkOrderOutcome.Result.INVALID_STATUS)
+                .status(status)
+                .message("Cannot " + action + " an order that is not in PENDING status")
+                .build();
+    }
+
+    /**
+     * Transaction-bound listeners receive the event only once the transition has committed.
+     */
+    private OrderDTO publishStatusChange(Order order, Order.OrderStatus previousStatus) {
+        return publishStatusChange(toDTO(order), previousStatus);
+    }
+
+    private OrderDTO publishStatusChange(OrderDTO dto, Order.OrderStatus previousStatus) {
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(dto, previousStatus));
+        return dto;
+    }
+
+    private OrderDTO loadOrder(Long id) {
+        List<OrderDTO> orders = toDTOs(orderRepository.findOrderLinesByOrderIds(List.of(id)));
+        if (orders.isEmpty()) {
+            throw new ResourceNotFoundException("Order not found with id: " + id);
+        }
+        return orders.get(0);
+    }
+
+    private static Map<Long, Integer> reservedQuantities(List<OrderLineView> lines) {
+        return lines.stream()
+                .filter(line -> line.productId() != null)
+                .collect(Collectors.toMap(OrderLineView::productId, OrderLineView::quantity, Integer::sum));
+    }
+
+    /**
+     * Assembles DTOs from projection rows ordered by order id, without loading any entity.
+     */
+    private List<OrderDTO> toDTOs(List<OrderLineView> lines) {
+        List<OrderDTO> orders = new ArrayList<>();
+        OrderDTO current = null;
+        for (OrderLineView line : lines) {
+            if (current == null || !current.getId().equals(line.orderId())) {
+                current = OrderDTO.builder()
+                        .id(line.orderId())
+                        .status(line.status())
+                        .createdAt(line.createdAt())
+                        .expiryTime(line.expiryTime())
+                        .paidAt(line.paidAt())
+                        .canceledAt(line.canceledAt())
+                        .totalAmount(line.totalAmount().toBigDecimal())
+                        .items(new ArrayList<>())
+                        .build();
+                orders.add(current);
+            }
+
+            if (line.itemId() != null) {
+                current.getItems().add(OrderItemDTO.builder()
+                        .id(line.itemId())
+                        .productId(line.productId())
+                        .productName(line.productName())
+                        .quantity(line.quantity())
+                        .price(line.price().toBigDecimal())
+                        .subtotal(line.price().times(line.quantity()).toBigDecimal())
+                        .build());
+            }
+        }
+        return orders;
     }
 
     private OrderDTO toDTO(Order order) {
@@ -160,8 +421,8 @@ public class OrderService {
                         .productId(item.getProduct().getId())
                         .productName(item.getProduct().getName())
                         .quantity(item.getQuantity())
-                        .price(item.getPrice())
-                        .subtotal(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                        .price(item.getPrice().toBigDecimal())
+                        .subtotal(item.getPrice().times(item.getQuantity()).toBigDecimal())
                         .build())
                 .collect(Collectors.toList());
 
@@ -172,7 +433,7 @@ public class OrderService {
                 .expiryTime(order.getExpiryTime())
                 .paidAt(order.getPaidAt())
                 .canceledAt(order.getCanceledAt())
-                .totalAmount(order.getTotalAmount())
+                .totalAmount(order.getTotalAmount().toBigDecimal())
                 .items(itemDTOs)
                 .build();
     }
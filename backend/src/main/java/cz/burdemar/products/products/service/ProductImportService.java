@@ -0,0 +1,168 @@
+package cz.burdemar.products.products.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import cz.burdemar.products.products.dto.ProductDTO;
+import cz.burdemar.products.products.dto.ProductImportResult;
+import cz.burdemar.products.products.event.ProductsImportedEvent;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.repository.ProductImportRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products from a streamed CSV (with a name,price,stockQuantity header) or NDJSON body.
+ * Rows are read one at a time, validated against the {@link ProductDTO} constraints and inserted
+ * in JDBC batches, each batch committed on its own, so memory use does not depend on the size of
+ * the file. Invalid rows are skipped and reported. Other columns or fields, such as the id of an
+ * exported product, are ignored; for CSV they are listed in the result.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+    private static final Set<String> IMPORTED_COLUMNS = Set.of("name", "price", "stockQuantity");
+
+    private final ProductImportRepository productImportRepository;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ProductImportService(ProductImportRepository productImportRepository,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${shop.products.import.batch-size:5000}") int batchSize,
+                                @Value("${shop.products.import.max-errors:1000}") int maxErrors) {
+        this.productImportRepository = productImportRepository;
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ProductImportResult importCsv(InputStream body) throws IOException {
+        MappingIterator<ProductDTO> rows = csvMapper.readerFor(ProductDTO.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(body);
+        ProductImportResult result = importRows(rows);
+
+        // The schema is the header, read with the first row
+        List<String> ignoredColumns = new ArrayList<>();
+        for (CsvSchema.Column column : ((CsvParser) rows.getParser()).getSchema()) {
+            if (!IMPORTED_COLUMNS.contains(column.getName())) {
+                ignoredColumns.add(column.getName());
+            }
+        }
+        result.setIgnoredColumns(ignoredColumns);
+        return result;
+    }
+
+    public ProductImportResult importNdjson(InputStream body) throws IOException {
+        return importRows(objectMapper.readerFor(ProductDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValues(body));
+    }
+
+    private ProductImportResult importRows(MappingIterator<ProductDTO> rows) throws IOException {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        List<ProductImportResult.RowError> errors = new ArrayList<>();
+        long row = 0;
+        long imported = 0;
+        long rejected = 0;
+        String abortedReason = null;
+
+        try (rows) {
+            while (rows.hasNextValue()) {
+                row++;
+                String error;
+                try {
+                    error = addRow(rows.nextValue(), batch);
+                } catch (JsonMappingException e) {
+                    // The iterator skips the rest of the malformed record on the next hasNextValue()
+                    error = e.getOriginalMessage();
+                }
+
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < maxErrors) {
+                        errors.add(new ProductImportResult.RowError(row, error));
+                    }
+                } else if (batch.size() == batchSize) {
+                    imported += flush(batch);
+                }
+            }
+        } catch (JsonProcessingException e) {
+            abortedReason = "Unreadable input after row " + row + ": " + e.getOriginalMessage();
+        }
+        imported += flush(batch);
+
+        log.info("Imported {} products, rejected {} rows{}", imported, rejected,
+                abortedReason != null ? ", aborted: " + abortedReason : "");
+        return ProductImportResult.builder()
+                .imported(imported)
+                .rejected(rejected)
+                .errors(errors)
+                .errorsTruncated(rejected > errors.size())
+                .abortedReason(abortedReason)
+                .build();
+    }
+
+    /**
+     * Adds a valid row to the batch, or returns why it is invalid.
+     */
+    private String addRow(ProductDTO product, List<Object[]> batch) {
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        Money price;
+        try {
+            price = Money.of(product.getPrice());
+        } catch (ArithmeticException e) {
+            return "Price is out of range";
+        }
+        batch.add(new Object[]{product.getName(), price.toBigDecimal(), product.getStockQuantity()});
+        return null;
+    }
+
+    private int flush(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        long changeVersion = productImportRepository.insertAll(batch);
+        eventPublisher.publishEvent(new ProductsImportedEvent(changeVersion));
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
+    }
+}
@@ -1,49 +1,278 @@
 package cz.burdemar.products.products.service;
 
+import cz.burdemar.products.products.cache.SingleFlight;
+import cz.burdemar.products.products.catalog.MappedProductStore;
+import cz.burdemar.products.products.catalog.ProductChangeVersions;
+import cz.burdemar.products.products.catalog.ProductNameIndex;
+import cz.burdemar.products.products.catalog.ProductPriceIndex;
+import cz.burdemar.products.products.datasource.ReadOnlyRoutingDataSource;
+import cz.burdemar.products.products.dto.ProductBatchResult;
+import cz.burdemar.products.products.dto.ProductBulkUpdateRequest;
+import cz.burdemar.products.products.dto.ProductBulkUpdateResult;
+import cz.burdemar.products.products.dto.ProductChangesDTO;
 import cz.burdemar.products.products.dto.ProductDTO;
+import cz.burdemar.products.products.dto.ProductFilterCriteria;
+import cz.burdemar.products.products.dto.ProductFilterResult;
+import cz.burdemar.products.products.dto.ProductStockDTO;
+import cz.burdemar.products.products.event.ProductNameChangedEvent;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
 import cz.burdemar.products.products.exception.ResourceNotFoundException;
+import cz.burdemar.products.products.metrics.ShopMetrics;
+import cz.burdemar.products.products.model.Money;
 import cz.burdemar.products.products.model.Order;
 import cz.burdemar.products.products.model.OrderItem;
 import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.model.ProductTombstone;
 import cz.burdemar.products.products.repository.OrderRepository;
+import cz.burdemar.products.products.repository.ProductBulkUpdateRepository;
 import cz.burdemar.products.products.repository.ProductRepository;
-import lombok.RequiredArgsConstructor;
+import cz.burdemar.products.products.repository.ProductSearchRepository;
+import cz.burdemar.products.products.repository.ProductTombstoneRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class ProductService {
+    static final int MAX_BATCH_IDS = 1000;
+    static final int MAX_SEARCH_RESULTS = 100;
+    static final int MAX_FILTER_PAGE_SIZE = 200;
+
     private final ProductRepository productRepository;
     private final OrderRepository orderRepository;
+    private final ProductBulkUpdateRepository productBulkUpdateRepository;
+    private final ProductTombstoneRepository productTombstoneRepository;
+    private final ProductChangeVersions changeVersions;
+    private final ProductNameIndex productNameIndex;
+    private final ProductPriceIndex productPriceIndex;
+    private final ProductSearchRepository productSearchRepository;
+    private final MappedProductStore mappedProductStore;
+    private final ShopMetrics shopMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate primaryReads;
+    // Concurrent reads of the same product, or of the whole catalog, share one query
+    private final SingleFlight<Long, ProductDTO> productLoads;
+    private final SingleFlight<String, List<ProductDTO>> catalogLoads;
+
+    public ProductService(ProductRepository productRepository,
+                          OrderRepository orderRepository,
+                          ProductBulkUpdateRepository productBulkUpdateRepository,
+                          ProductTombstoneRepository productTombstoneRepository,
+                          ProductChangeVersions changeVersions,
+                          ProductNameIndex productNameIndex,
+                          ProductPriceIndex productPriceIndex,
+                          ProductSearchRepository productSearchRepository,
+                          MappedProductStore mappedProductStore,
+                          ShopMetrics shopMetrics,
+                          ApplicationEventPublisher eventPublisher,
+                          PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.orderRepository = orderRepository;
+        this.productBulkUpdateRepository = productBulkUpdateRepository;
+        this.productTombstoneRepository = productTombstoneRepository;
+        this.changeVersions = changeVersions;
+        this.productNameIndex = productNameIndex;
+        this.productPriceIndex = productPriceIndex;
+        this.productSearchRepository = productSearchRepository;
+        this.mappedProductStore = mappedProductStore;
+        this.shopMetrics = shopMetrics;
+        this.eventPublisher = eventPublisher;
+        this.primaryReads = ReadOnlyRoutingDataSource.primaryReads(transactionManager);
+        this.productLoads = new SingleFlight<>(shopMetrics.getProductByIdLoadedCounter(),
+                shopMetrics.getProductByIdJoinedCounter());
+        this.catalogLoads = new SingleFlight<>(shopMetrics.getCatalogLoadedCounter(),
+                shopMetrics.getCatalogJoinedCounter());
+    }
 
+    @Transactional(readOnly = true)
     public List<ProductDTO> getAllProducts() {
+        if (mappedProductStore.isReady()) {
+            return mappedProductStore.findAll();
+        }
+        return catalogLoads.load("all", this::loadAllProducts);
+    }
+
+    // Unmodifiable, as concurrent callers may share the result
+    private List<ProductDTO> loadAllProducts() {
         return productRepository.findAll().stream()
                 .map(this::toDTO)
-                .collect(Collectors.toList());
+                .toList();
     }
 
+    @Transactional(readOnly = true)
     public ProductDTO getProductById(Long id) {
-        return productRepository.findById(id)
+        if (mappedProductStore.isReady()) {
+            ProductDTO stored = mappedProductStore.findById(id);
+            if (stored != null) {
+                return stored;
+            }
+        }
+        return productLoads.load(id, () -> productRepository.findById(id)
                 .map(this::toDTO)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id)));
+    }
+
+    /**
+     * Looks up several products with one query. Products come back in request order with
+     * duplicates dropped; IDs without a product are reported instead of failing the lookup.
+     */
+    @Transactional(readOnly = true)
+    public ProductBatchResult getProductsByIds(List<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.isEmpty()) {
+            throw new IllegalStateException("At least one product ID is required");
+        }
+        if (requested.size() > MAX_BATCH_IDS) {
+            throw new IllegalStateException("At most " + MAX_BATCH_IDS + " products can be looked up at once");
+        }
+
+        Map<Long, Product> found = productRepository.findAllById(requested).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<ProductDTO> products = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(toDTO(product));
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new ProductBatchResult(products, missingIds);
+    }
+
+    /**
+     * Finds products whose name contains all words of the query, the last one as a prefix,
+     * using the in-memory name index and loading only the matches.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductDTO> searchProducts(String query, int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalStateException("Limit must be between 1 and " + MAX_SEARCH_RESULTS);
+        }
+        List<Long> ids = productNameIndex.search(query, limit);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return getProductsByIds(ids).getProducts();
+    }
+
+    /**
+     * Filters the catalog by price range and availability. Pages sorted by price are served
+     * from the in-memory price index; other orders fall back to a database query.
+     */
+    @Transactional(readOnly = true)
+    public ProductFilterResult filterProducts(ProductFilterCriteria criteria) {
+        int size = Math.max(1, Math.min(criteria.getSize(), MAX_FILTER_PAGE_SIZE));
+        int offset = (int) Math.min((long) Math.max(0, criteria.getPage()) * size, Integer.MAX_VALUE);
+        Money minPrice = priceBound(criteria.getMinPrice());
+        Money maxPrice = priceBound(criteria.getMaxPrice());
+
+        // Fetch one id more than requested to learn whether another page exists
+        List<Long> ids = switch (criteria.getSort()) {
+            case PRICE_ASC, PRICE_DESC -> productPriceIndex.filter(
+                    minPrice == null ? null : minPrice.minorUnits(),
+                    maxPrice == null ? null : maxPrice.minorUnits(),
+                    criteria.isInStock(), criteria.getSort() == ProductFilterCriteria.SortOrder.PRICE_DESC,
+                    offset, size + 1);
+            case NAME_ASC -> productSearchRepository.findIdsOrderedByName(minPrice, maxPrice, criteria.isInStock(),
+                    offset, size + 1);
+        };
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+
+        return ProductFilterResult.builder()
+                .products(pageIds.isEmpty() ? List.of() : getProductsByIds(pageIds).getProducts())
+                .hasNext(hasNext)
+                .build();
+    }
+
+    private static Money priceBound(BigDecimal price) {
+        if (price == null) {
+            return null;
+        }
+        try {
+            return Money.of(price);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("Price bounds must have at most " + Money.SCALE + " decimal places");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProductStockDTO> getStockLevels(Collection<Long> ids) {
+        return productRepository.findAllById(ids).stream()
+                .map(product -> new ProductStockDTO(product.getId(), product.getStockQuantity()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the stock of the given products as last committed. Read from the primary: it is
+     * read right after changes commit, which a lagging replica may not have applied yet.
+     */
+    public List<ProductStockDTO> getCommittedStockLevels(Collection<Long> ids) {
+        return primaryReads.execute(status -> productRepository.findPricesAndStockByIds(ids).stream()
+                .map(row -> new ProductStockDTO((Long) row[0], (Integer) row[2]))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Returns what changed in the catalog after the given version; {@code since} 0 returns the
+     * whole catalog. Read from the primary: the watermark reflects commits on the primary, which
+     * a lagging replica may not have applied yet.
+     */
+    public ProductChangesDTO getChanges(long since) {
+        return primaryReads.execute(status -> loadChanges(since));
+    }
+
+    private ProductChangesDTO loadChanges(long since) {
+        long upTo = changeVersions.committedWatermark();
+        if (since <= 0) {
+            // The store may not have caught up with the watermark yet
+            return ProductChangesDTO.builder()
+                    .products(loadAllProducts())
+                    .deletedIds(List.of())
+                    .version(upTo)
+                    .build();
+        }
+
+        return ProductChangesDTO.builder()
+                .products(productRepository.findChanged(since, upTo).stream()
+                        .map(this::toDTO)
+                        .collect(Collectors.toList()))
+                .deletedIds(productTombstoneRepository.findDeletedProductIds(since, upTo))
+                .version(Math.max(since, upTo))
+                .build();
     }
 
     @Transactional
     public ProductDTO createProduct(ProductDTO productDTO) {
         Product product = Product.builder()
                 .name(productDTO.getName())
-                .price(productDTO.getPrice())
+                .price(Money.of(productDTO.getPrice()))
                 .stockQuantity(productDTO.getStockQuantity())
+                .changeVersion(changeVersions.current())
                 .build();
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductNameChangedEvent(savedProduct.getId()));
+        eventPublisher.publishEvent(new ProductsChangedEvent(List.of(savedProduct.getId())));
         return toDTO(savedProduct);
     }
 
@@ -52,11 +281,21 @@ public class ProductService {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
 
+        boolean renamed = !Objects.equals(product.getName(), productDTO.getName());
         product.setName(productDTO.getName());
-        product.setPrice(productDTO.getPrice());
+        product.setPrice(Money.of(productDTO.getPrice()));
+        boolean stockChanged = !Objects.equals(product.getStockQuantity(), productDTO.getStockQuantity());
         product.setStockQuantity(productDTO.getStockQuantity());
+        product.setChangeVersion(changeVersions.current());
 
         Product updatedProduct = productRepository.save(product);
+        if (stockChanged) {
+            publishStockChange(updatedProduct);
+        }
+        if (renamed) {
+            eventPublisher.publishEvent(new ProductNameChangedEvent(id));
+        }
+        eventPublisher.publishEvent(new ProductsChangedEvent(List.of(id)));
         return toDTO(updatedProduct);
     }
 
@@ -66,27 +305,73 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
 
         // Check if the product is referenced in any active orders
-        boolean isProductInActiveOrder = orderRepository.findAll().stream()
-                .filter(order -> order.getStatus() == Order.OrderStatus.PENDING || order.getStatus() == Order.OrderStatus.PAID)
-                .flatMap(order -> order.getItems().stream())
-                .anyMatch(item -> item.getProduct().getId().equals(id));
+        boolean isProductInActiveOrder = orderRepository.existsByStatusInAndItemsProductId(
+                List.of(Order.OrderStatus.PENDING, Order.OrderStatus.PAID), id);
 
         if (isProductInActiveOrder) {
             throw new IllegalStateException("Cannot delete product as it is referenced in active orders");
         }
 
         productRepository.delete(product);
+        productTombstoneRepository.save(new ProductTombstone(id, changeVersions.current()));
+        eventPublisher.publishEvent(new ProductNameChangedEvent(id));
+        eventPublisher.publishEvent(new ProductsChangedEvent(List.of(id)));
+    }
+
+    /**
+     * Applies a chunk of bulk updates in one transaction, with one batched UPDATE setting both
+     * stock and price, so that row locks are taken in a single pass in id order. The chunk must
+     * be sorted by product id with at most one update per product. An update whose stock delta is
+     * rejected leaves the price unchanged too. Returns the updates that could not be applied.
+     */
+    @Transactional
+    public List<ProductBulkUpdateResult.Failure> applyBulkUpdates(List<ProductBulkUpdateRequest.Update> updates) {
+        Set<Long> rejected = new HashSet<>();
+
+        boolean[] applied = productBulkUpdateRepository.applyUpdates(updates.stream()
+                .map(update -> new Object[]{update.getStockDelta(),
+                        update.getPrice() == null ? null : Money.of(update.getPrice()).toBigDecimal(),
+                        update.getProductId()})
+                .toList(), changeVersions.current());
+        for (int i = 0; i < applied.length; i++) {
+            if (!applied[i]) {
+                rejected.add(updates.get(i).getProductId());
+            }
+        }
+
+        List<ProductBulkUpdateResult.Failure> failures = new ArrayList<>();
+        Set<Long> existing = rejected.isEmpty() ? Set.of() : productBulkUpdateRepository.findExistingIds(rejected);
+        List<Long> changed = new ArrayList<>();
+        for (ProductBulkUpdateRequest.Update update : updates) {
+            Long id = update.getProductId();
+            if (!rejected.contains(id)) {
+                changed.add(id);
+            } else if (existing.contains(id)) {
+                failures.add(new ProductBulkUpdateResult.Failure(id, ProductBulkUpdateResult.Reason.INSUFFICIENT_STOCK,
+                        "Stock quantity cannot become negative"));
+            } else {
+                failures.add(new ProductBulkUpdateResult.Failure(id, ProductBulkUpdateResult.Reason.NOT_FOUND,
+                        "Product not found with id: " + id));
+            }
+        }
+
+        if (!changed.isEmpty()) {
+            eventPublisher.publishEvent(new ProductsChangedEvent(changed));
+        }
+        return failures;
     }
 
     /**
      * Fetches products with a pessimistic lock to prevent concurrent modifications.
-     * This method should be called within a transaction.
+     * Products are locked in id order, the same order bulk updates use, so that the two cannot
+     * deadlock. This method should be called within a transaction.
      */
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public Map<Long, Product> getProductsWithLockByIds(List<Long> productIds) {
         return productIds.stream()
-                .map(id -> productRepository.findWithLockById(id)
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id)))
+                .distinct()
+                .sorted()
+                .map(this::lockProduct)
                 .collect(Collectors.toMap(Product::getId, Function.identity()));
     }
 
@@ -99,21 +384,25 @@ public class ProductService {
         Map<Long, Product> lockedProducts = orderItems.stream()
                 .map(item -> item.getProduct().getId())
                 .distinct()
-                .map(id -> productRepository.findWithLockById(id)
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id)))
+                .sorted()
+                .map(this::lockProduct)
                 .collect(Collectors.toMap(Product::getId, Function.identity()));
 
         for (OrderItem item : orderItems) {
             Product product = lockedProducts.get(item.getProduct().getId());
 
             if (product.getStockQuantity() < item.getQuantity()) {
+                shopMetrics.getInsufficientStockCounter().increment();
                 throw new IllegalStateException("Insufficient stock for product: " + product.getName() +
                         ". Available: " + product.getStockQuantity() + ", Required: " + item.getQuantity());
             }
 
             product.setStockQuantity(product.getStockQuantity() - item.getQuantity());
+            product.setChangeVersion(changeVersions.current());
             productRepository.save(product);
         }
+
+        lockedProducts.values().forEach(this::publishStockChange);
     }
 
     /**
@@ -121,26 +410,39 @@ public class ProductService {
      */
     @Transactional(isolation = Isolation.SERIALIZABLE)
     public void releaseStock(List<OrderItem> orderItems) {
-        // First get all products with lock to prevent concurrent modifications
-        Map<Long, Product> lockedProducts = orderItems.stream()
-                .map(item -> item.getProduct().getId())
-                .distinct()
-                .map(id -> productRepository.findWithLockById(id)
-                        .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id)))
-                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        releaseStock(orderItems.stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), OrderItem::getQuantity, Integer::sum)));
+    }
 
-        for (OrderItem item : orderItems) {
-            Product product = lockedProducts.get(item.getProduct().getId());
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
+    /**
+     * Releases the given quantities keyed by product id. Products are locked in id order so that
+     * concurrent releases cannot deadlock on each other.
+     */
+    @Transactional(isolation = Isolation.SERIALIZABLE)
+    public void releaseStock(Map<Long, Integer> quantitiesByProductId) {
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantitiesByProductId).entrySet()) {
+            Product product = lockProduct(entry.getKey());
+            product.setStockQuantity(product.getStockQuantity() + entry.getValue());
+            product.setChangeVersion(changeVersions.current());
             productRepository.save(product);
+            publishStockChange(product);
         }
     }
 
+    private void publishStockChange(Product product) {
+        eventPublisher.publishEvent(new ProductStockChangedEvent(product.getId(), product.getStockQuantity()));
+    }
+
+    private Product lockProduct(Long id) {
+        return shopMetrics.getLockWaitTimer().record(() -> productRepository.findWithLockById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+    }
+
     private ProductDTO toDTO(Product product) {
         return ProductDTO.builder()
                 .id(product.getId())
                 .name(product.getName())
-                .price(product.getPrice())
+                .price(product.getPrice().toBigDecimal())
                 .stockQuantity(product.getStockQuantity())
                 .build();
     }
@@ -0,0 +1,390 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.DailySalesDTO;
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.dto.OrderItemDTO;
+import cz.burdemar.products.products.dto.ProductSalesDTO;
+import cz.burdemar.products.products.datasource.ReadOnlyRoutingDataSource;
+import cz.burdemar.products.products.event.OrderStatusChangedEvent;
+import cz.burdemar.products.products.model.DailySalesRollup;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.model.ProductSalesRollup;
+import cz.burdemar.products.products.repository.DailySalesRollupRepository;
+import cz.burdemar.products.products.repository.ProductRepository;
+import cz.burdemar.products.products.repository.ProductSalesRollupRepository;
+import cz.burdemar.products.products.repository.SalesRollupAggregationRepository;
+import cz.burdemar.products.products.stats.SalesRollupSnapshot;
+import cz.burdemar.products.products.stats.TopSellers;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Sales statistics maintained incrementally from {@link OrderStatusChangedEvent}s, so that no
+ * read has to scan orders.
+ * <p>
+ * Status counters and the top-sellers leaderboard live in memory and are updated as soon as a
+ * transition commits. The daily and per-product rollup tables are written behind: committed
+ * events are queued and folded into the tables by {@link #flushPendingEvents()}. {@link #rebuild()}
+ * recomputes everything from the order tables, e.g. after a crash lost queued events.
+ */
+@Service
+@Slf4j
+public class SalesStatsService {
+    private static final int MAX_DAILY_RANGE_DAYS = 366;
+
+    private final DailySalesRollupRepository dailySalesRollupRepository;
+    private final ProductSalesRollupRepository productSalesRollupRepository;
+    private final SalesRollupAggregationRepository aggregationRepository;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate rangeReads;
+    private final int rebuildParallelism;
+    private final long rebuildChunkSize;
+
+    private final Map<Order.OrderStatus, LongAdder> statusCounters = new EnumMap<>(Order.OrderStatus.class);
+    private final TopSellers topSellers;
+    private final Queue<OrderStatusChangedEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final Object rollupLock = new Object();
+    // Shared by the event listener, exclusive while a rebuild swaps in the recomputed counters
+    private final ReadWriteLock eventLock = new ReentrantReadWriteLock();
+
+    public SalesStatsService(DailySalesRollupRepository dailySalesRollupRepository,
+                             ProductSalesRollupRepository productSalesRollupRepository,
+                             SalesRollupAggregationRepository aggregationRepository,
+                             ProductRepository productRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${shop.stats.top-sellers-size:100}") int topSellersSize,
+                             @Value("${shop.stats.rebuild-parallelism:4}") int rebuildParallelism,
+                             @Value("${shop.stats.rebuild-chunk-size:50000}") long rebuildChunkSize) {
+        this.dailySalesRollupRepository = dailySalesRollupRepository;
+        this.productSalesRollupRepository = productSalesRollupRepository;
+        this.aggregationRepository = aggregationRepository;
+        this.productRepository = productRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rangeReads = ReadOnlyRoutingDataSource.primaryReads(transactionManager);
+        this.rangeReads.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.topSellers = new TopSellers(topSellersSize);
+        this.rebuildParallelism = rebuildParallelism;
+        this.rebuildChunkSize = rebuildChunkSize;
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            statusCounters.put(status, new LongAdder());
+        }
+    }
+
+    /**
+     * Seeds the in-memory structures: status counters with one GROUP BY over hot and archived orders, the
+     * leaderboard from the product rollup table.
+     */
+    @PostConstruct
+    public void loadCounters() {
+        aggregationRepository.countOrdersByStatus()
+                .forEach((status, count) -> statusCounters.get(status).add(count));
+        topSellers.reset(productSalesRollupRepository.findAll().stream()
+                .collect(Collectors.toMap(ProductSalesRollup::getProductId, ProductSalesRollup::getPaidUnits)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        eventLock.readLock().lock();
+        try {
+            count(event);
+            pendingEvents.add(event);
+        } finally {
+            eventLock.readLock().unlock();
+        }
+    }
+
+    private void count(OrderStatusChangedEvent event) {
+        OrderDTO order = event.order();
+        if (event.previousStatus() != null) {
+            statusCounters.get(event.previousStatus()).decrement();
+        }
+        statusCounters.get(order.getStatus()).increment();
+
+        if (order.getStatus() == Order.OrderStatus.PAID) {
+            for (OrderItemDTO item : order.getItems()) {
+                topSellers.add(item.getProductId(), item.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Folds queued events into the rollup tables. Events are put back when the write fails,
+     * including when the transaction fails to commit.
+     *
+     * @return number of events applied
+     */
+    public int flushPendingEvents() {
+        synchronized (rollupLock) {
+            List<OrderStatusChangedEvent> batch = new ArrayList<>();
+            OrderStatusChangedEvent event;
+            while ((event = pendingEvents.poll()) != null) {
+                batch.add(event);
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> writeRollups(batch));
+            } catch (RuntimeException e) {
+                pendingEvents.addAll(batch);
+                throw e;
+            }
+            return batch.size();
+        }
+    }
+
+    private void writeRollups(List<OrderStatusChangedEvent> batch) {
+        SalesRollupSnapshot delta = new SalesRollupSnapshot();
+        batch.forEach(e -> applyTo(delta, e));
+
+        List<DailySalesRollup> days = new ArrayList<>(dailySalesRollupRepository.findAllById(delta.getDays().keySet()));
+        Map<LocalDate, DailySalesRollup> storedDays = days.stream()
+                .collect(Collectors.toMap(DailySalesRollup::getSalesDate, Function.identity()));
+        delta.getDays().forEach((date, change) -> {
+            DailySalesRollup stored = storedDays.get(date);
+            if (stored == null) {
+                days.add(change);
+            } else {
+                stored.add(change);
+            }
+        });
+        dailySalesRollupRepository.saveAll(days);
+
+        List<ProductSalesRollup> products = new ArrayList<>(productSalesRollupRepository.findAllById(delta.getProducts().keySet()));
+        Map<Long, ProductSalesRollup> storedProducts = products.stream()
+                .collect(Collectors.toMap(ProductSalesRollup::getProductId, Function.identity()));
+        delta.getProducts().forEach((productId, change) -> {
+            ProductSalesRollup stored = storedProducts.get(productId);
+            if (stored == null) {
+                products.add(change);
+            } else {
+                stored.add(change);
+            }
+        });
+        productSalesRollupRepository.saveAll(products);
+    }
+
+    /**
+     * Recomputes rollups, counters and the leaderboard from the order tables, aggregating order id
+     * ranges in parallel. Each range is read in one snapshot that also records the status of every
+     * order from the oldest pending one up; a transition committed during the rebuild is added on
+     * top only if its range did not already see it. Flushes wait until the new tables have committed.
+     */
+    public Map<Order.OrderStatus, Long> rebuild() {
+        synchronized (rollupLock) {
+            // Everything queued so far has committed and is read by the aggregation
+            pendingEvents.clear();
+            long[] bounds = aggregationRepository.findOrderIdBounds();
+            Long oldestPending = aggregationRepository.findOldestPendingOrderId();
+            long openFromId = oldestPending != null ? oldestPending : bounds != null ? bounds[1] + 1 : 0;
+            SalesRollupSnapshot snapshot = bounds != null
+                    ? aggregateInParallel(bounds, openFromId) : new SalesRollupSnapshot();
+
+            eventLock.writeLock().lock();
+            try {
+                OrderStatusChangedEvent event;
+                while ((event = pendingEvents.poll()) != null) {
+                    if (!isAggregated(snapshot, event, openFromId)) {
+                        applyTo(snapshot, event);
+                        if (event.previousStatus() != null) {
+                            snapshot.addStatusCount(event.previousStatus(), -1);
+                        }
+                        snapshot.addStatusCount(event.order().getStatus(), 1);
+                    }
+                }
+
+                for (Order.OrderStatus status : Order.OrderStatus.values()) {
+                    LongAdder counter = statusCounters.get(status);
+                    counter.reset();
+                    counter.add(snapshot.getStatusCounts().getOrDefault(status, 0L));
+                }
+                Map<Long, Long> units = new HashMap<>();
+                snapshot.getProducts().forEach((productId, rollup) -> units.put(productId, rollup.getPaidUnits()));
+                topSellers.reset(units);
+            } finally {
+                eventLock.writeLock().unlock();
+            }
+
+            transactionTemplate.executeWithoutResult(status -> aggregationRepository.replaceRollups(snapshot));
+
+            log.info("Rebuilt sales rollups: {} days, {} products", snapshot.getDays().size(), snapshot.getProducts().size());
+            return getStatusCounts();
+        }
+    }
+
+    public Map<Order.OrderStatus, Long> getStatusCounts() {
+        Map<Order.OrderStatus, Long> counts = new EnumMap<>(Order.OrderStatus.class);
+        statusCounters.forEach((status, counter) -> counts.put(status, counter.sum()));
+        return counts;
+    }
+
+    @Transactional(readOnly = true)
+    public List<DailySalesDTO> getDailySales(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalStateException("'from' must not be after 'to'");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAILY_RANGE_DAYS) {
+            throw new IllegalStateException("Date range must not exceed " + MAX_DAILY_RANGE_DAYS + " days");
+        }
+
+        return dailySalesRollupRepository.findBySalesDateBetweenOrderBySalesDate(from, to).stream()
+                .map(day -> DailySalesDTO.builder()
+                        .date(day.getSalesDate())
+                        .createdOrders(day.getCreatedOrders())
+                        .paidOrders(day.getPaidOrders())
+                        .canceledOrders(day.getCanceledOrders())
+                        .expiredOrders(day.getExpiredOrders())
+                        .paidUnits(day.getPaidUnits())
+                        .paidRevenue(new Money(day.getPaidRevenue()).toBigDecimal())
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public ProductSalesDTO getProductSales(Long productId) {
+        ProductSalesRollup rollup = productSalesRollupRepository.findById(productId)
+                .orElseGet(() -> ProductSalesRollup.builder().productId(productId).build());
+        String name = productRepository.findById(productId).map(Product::getName).orElse(null);
+        return toDTO(rollup, name);
+    }
+
+    /**
+     * Best sellers by paid units. Units come from the live leaderboard, orders and revenue from
+     * the rollup table, which may trail by one flush interval.
+     */
+    @Transactional(readOnly = true)
+    public List<ProductSalesDTO> getTopSellers(int limit) {
+        List<TopSellers.Entry> leaders = topSellers.top(Math.max(1, Math.min(limit, topSellers.getCapacity())));
+        List<Long> ids = leaders.stream().map(TopSellers.Entry::productId).collect(Collectors.toList());
+
+        Map<Long, ProductSalesRollup> rollups = productSalesRollupRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ProductSalesRollup::getProductId, Function.identity()));
+        Map<Long, String> names = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Product::getName));
+
+        return leaders.stream()
+                .map(entry -> {
+                    ProductSalesRollup rollup = rollups.getOrDefault(entry.productId(),
+                            ProductSalesRollup.builder().productId(entry.productId()).build());
+                    ProductSalesDTO dto = toDTO(rollup, names.get(entry.productId()));
+                    dto.setPaidUnits(entry.units());
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Whether the aggregation already counted the event. Orders below {@code openFromId} were closed
+     * before it started; above it, the event is in if its range saw the order at all (creation) or
+     * saw it in the event's status (transition).
+     */
+    private boolean isAggregated(SalesRollupSnapshot snapshot, OrderStatusChangedEvent event, long openFromId) {
+        OrderDTO order = event.order();
+        if (order.getId() < openFromId) {
+            return true;
+        }
+        Order.OrderStatus seen = snapshot.getOpenOrderStatuses().get(order.getId());
+        return event.previousStatus() == null ? seen != null : seen == order.getStatus();
+    }
+
+    private SalesRollupSnapshot aggregateInParallel(long[] bounds, long openFromId) {
+        SalesRollupSnapshot snapshot = new SalesRollupSnapshot();
+        ExecutorService executor = Executors.newFixedThreadPool(rebuildParallelism);
+        try {
+            List<Future<SalesRollupSnapshot>> chunks = new ArrayList<>();
+            for (long fromId = bounds[0]; fromId <= bounds[1]; fromId += rebuildChunkSize) {
+                long chunkFrom = fromId;
+                long chunkTo = Math.min(fromId + rebuildChunkSize, bounds[1] + 1);
+                chunks.add(executor.submit(() -> rangeReads.execute(status ->
+                        aggregationRepository.aggregate(chunkFrom, chunkTo, openFromId))));
+            }
+            for (Future<SalesRollupSnapshot> chunk : chunks) {
+                snapshot.merge(chunk.get());
+            }
+            return snapshot;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sales rollup rebuild was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Sales rollup rebuild failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void applyTo(SalesRollupSnapshot delta, OrderStatusChangedEvent event) {
+        OrderDTO order = event.order();
+        if (event.previousStatus() == null) {
+            DailySalesRollup created = delta.day(order.getCreatedAt().toLocalDate());
+            created.setCreatedOrders(created.getCreatedOrders() + 1);
+        }
+
+        switch (order.getStatus()) {
+            case PAID -> {
+                DailySalesRollup day = delta.day(order.getPaidAt().toLocalDate());
+                day.setPaidOrders(day.getPaidOrders() + 1);
+                day.setPaidRevenue(day.getPaidRevenue() + Money.of(order.getTotalAmount()).minorUnits());
+
+                Map<Long, ProductSalesRollup> lines = new HashMap<>();
+                for (OrderItemDTO item : order.getItems()) {
+                    day.setPaidUnits(day.getPaidUnits() + item.getQuantity());
+                    ProductSalesRollup line = lines.computeIfAbsent(item.getProductId(),
+                            id -> ProductSalesRollup.builder().productId(id).paidOrders(1).build());
+                    line.setPaidUnits(line.getPaidUnits() + item.getQuantity());
+                    line.setPaidRevenue(line.getPaidRevenue() + Money.of(item.getSubtotal()).minorUnits());
+                }
+                lines.forEach((productId, line) -> delta.product(productId).add(line));
+            }
+            case CANCELED -> {
+                DailySalesRollup day = delta.day(order.getCanceledAt().toLocalDate());
+                day.setCanceledOrders(day.getCanceledOrders() + 1);
+            }
+            case EXPIRED -> {
+                DailySalesRollup day = delta.day(order.getExpiryTime().toLocalDate());
+                day.setExpiredOrders(day.getExpiredOrders() + 1);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private ProductSalesDTO toDTO(ProductSalesRollup rollup, String productName) {
+        return ProductSalesDTO.builder()
+                .productId(rollup.getProductId())
+                .productName(productName)
+                .paidOrders(rollup.getPaidOrders())
+                .paidUnits(rollup.getPaidUnits())
+                .paidRevenue(new Money(rollup.getPaidRevenue()).toBigDecimal())
+                .build();
+    }
+}
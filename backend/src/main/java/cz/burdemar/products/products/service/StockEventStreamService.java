@@ -0,0 +1,81 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.ProductStockDTO;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
+import cz.burdemar.products.products.sse.SseBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pushes stock levels to product page subscribers. Committed changes are coalesced per product
+ * and the stock is read once per interval, so a burst of checkouts on one product costs a single
+ * event per subscriber.
+ * <p>
+ * Listeners of different transactions may run in any order, so the quantities the events carry
+ * are not trusted to be the latest; the changed products' stock is read back from the primary
+ * when it is published.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockEventStreamService {
+    private static final int MAX_SUBSCRIBED_PRODUCTS = 200;
+    private static final int READ_CHUNK_SIZE = 1000;
+
+    private final SseBroadcaster<Long, ProductStockDTO> stockEventBroadcaster;
+    private final ProductService productService;
+    private final Set<Long> changedProducts = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Streams the current stock of the given products followed by their changes.
+     */
+    public SseEmitter subscribe(Collection<Long> productIds) {
+        if (productIds.isEmpty() || productIds.size() > MAX_SUBSCRIBED_PRODUCTS) {
+            throw new IllegalStateException("Subscribe to between 1 and " + MAX_SUBSCRIBED_PRODUCTS + " products");
+        }
+        return stockEventBroadcaster.subscribe(productIds, () -> productService.getStockLevels(productIds));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        changedProducts.add(event.productId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductsChanged(ProductsChangedEvent event) {
+        changedProducts.addAll(event.productIds());
+    }
+
+    @Scheduled(fixedDelayString = "${shop.sse.stock-coalesce-interval:250}")
+    public void publishPendingStock() {
+        // Removed before the read, so a change committed after the read stays pending for the next run
+        List<Long> productIds = new ArrayList<>();
+        for (Iterator<Long> changed = changedProducts.iterator(); changed.hasNext(); ) {
+            productIds.add(changed.next());
+            changed.remove();
+        }
+        for (int from = 0; from < productIds.size(); from += READ_CHUNK_SIZE) {
+            List<Long> chunk = productIds.subList(from, Math.min(from + READ_CHUNK_SIZE, productIds.size()));
+            List<ProductStockDTO> stockLevels;
+            try {
+                stockLevels = productService.getCommittedStockLevels(chunk);
+            } catch (RuntimeException e) {
+                changedProducts.addAll(productIds.subList(from, productIds.size()));
+                throw e;
+            }
+            for (ProductStockDTO stock : stockLevels) {
+                stockEventBroadcaster.publish(stock.getProductId(), stock);
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package cz.burdemar.products.products.sse;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fans events out to Server-Sent Events subscribers, either by key or to every subscriber
+ * whose filter accepts the event.
+ * <p>
+ * Each subscriber has a bounded buffer drained by one virtual thread at a time, so a publisher
+ * never blocks on a client connection and a slow client only parks its own sender. A subscriber
+ * whose buffer overflows, or whose send has been blocked for longer than the write timeout, is
+ * disconnected; EventSource clients reconnect on their own and receive the current state again.
+ * <p>
+ * Idle streams get a comment line every heartbeat interval, so that dead connections fail a
+ * write and are released long before the stream times out.
+ */
+@Slf4j
+public class SseBroadcaster<K, T> implements AutoCloseable {
+    private final String eventName;
+    private final int bufferSize;
+    private final long timeoutMillis;
+    private final long writeTimeoutNanos;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService heartbeats;
+    private final Map<K, Set<Subscriber>> subscribersByKey = new ConcurrentHashMap<>();
+    private final Set<Subscriber> globalSubscribers = ConcurrentHashMap.newKeySet();
+    private final Set<Subscriber> allSubscribers = ConcurrentHashMap.newKeySet();
+
+    public SseBroadcaster(String eventName, int bufferSize, Duration timeout, Duration writeTimeout,
+                          Duration heartbeatInterval) {
+        this(eventName, bufferSize, timeout, writeTimeout,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("sse-" + eventName + "-", 0).factory()),
+                Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("sse-" + eventName + "-heartbeat-")));
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    SseBroadcaster(String eventName, int bufferSize, Duration timeout, Duration writeTimeout,
+                   ExecutorService executor, ScheduledExecutorService heartbeats) {
+        this.eventName = eventName;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.executor = executor;
+        this.heartbeats = heartbeats;
+    }
+
+    /**
+     * Subscribes to events published under any of {@code keys}. The initial state is read after
+     * the subscriber is registered, so it is never older than an event delivered before it.
+     * Exceptions thrown by {@code initialState} are propagated to the caller.
+     */
+    public SseEmitter subscribe(Collection<K> keys, Supplier<? extends Collection<T>> initialState) {
+        Subscriber subscriber = new Subscriber(List.copyOf(keys), event -> true);
+        for (K key : subscriber.keys) {
+            subscribersByKey.compute(key, (k, subscribers) -> {
+                Set<Subscriber> result = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+                result.add(subscriber);
+                return result;
+            });
+        }
+
+        try {
+            initialState.get().forEach(subscriber::offer);
+        } catch (RuntimeException e) {
+            subscriber.close();
+            throw e;
+        }
+        return subscriber.emitter;
+    }
+
+    /**
+     * Subscribes to every published event accepted by {@code filter}.
+     */
+    public SseEmitter subscribeAll(Predicate<T> filter) {
+        Subscriber subscriber = new Subscriber(List.of(), filter);
+        globalSubscribers.add(subscriber);
+        return subscriber.emitter;
+    }
+
+    public void publish(K key, T event) {
+        Set<Subscriber> subscribers = subscribersByKey.get(key);
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.offer(event));
+        }
+        for (Subscriber subscriber : globalSubscribers) {
+            if (subscriber.filter.test(event)) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    public int getSubscriberCount() {
+        return allSubscribers.size();
+    }
+
+    /**
+     * Disconnects subscribers stuck in a send past the write timeout and queues a heartbeat for
+     * the others. Never blocks on a connection itself.
+     */
+    void heartbeat() {
+        try {
+            long now = System.nanoTime();
+            for (Subscriber subscriber : allSubscribers) {
+                long sendDeadline = subscriber.sendDeadline;
+                if (sendDeadline != 0 && now - sendDeadline > 0) {
+                    log.info("Disconnecting {} event subscriber blocked on a send", eventName);
+                    // Completing the emitter may wait for the blocked send, so not on this thread
+                    executor.execute(subscriber::close);
+                } else {
+                    subscriber.heartbeatDue.set(true);
+                    subscriber.scheduleDrain();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Sending {} event heartbeats failed", eventName, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeats.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter = new SseEmitter(timeoutMillis);
+        private final List<K> keys;
+        private final Predicate<T> filter;
+        private final BlockingQueue<T> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // System.nanoTime() by which the send in progress must finish, 0 when not sending
+        private volatile long sendDeadline;
+
+        private Subscriber(List<K> keys, Predicate<T> filter) {
+            this.keys = keys;
+            this.filter = filter;
+            allSubscribers.add(this);
+            emitter.onCompletion(this::release);
+            emitter.onError(error -> release());
+            emitter.onTimeout(this::close);
+        }
+
+        private void offer(T event) {
+            if (closed.get()) {
+                return;
+            }
+            if (!buffer.offer(event)) {
+                log.info("Disconnecting slow {} event subscriber", eventName);
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!closed.get() && draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (!closed.get()) {
+                    T event = buffer.poll();
+                    if (event != null) {
+                        send(SseEmitter.event().name(eventName).data(event));
+                    } else if (heartbeatDue.getAndSet(false)) {
+                        send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        break;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the emitter already completed
+                close();
+            } finally {
+                draining.set(false);
+            }
+
+            // An event may have arrived after the last poll but before the flag was cleared
+            if (!buffer.isEmpty() || heartbeatDue.get()) {
+                scheduleDrain();
+            }
+        }
+
+        private void send(SseEmitter.SseEventBuilder message) throws IOException {
+            sendDeadline = System.nanoTime() + writeTimeoutNanos;
+            try {
+                emitter.send(message);
+            } finally {
+                sendDeadline = 0;
+            }
+        }
+
+        private void close() {
+            if (release()) {
+                emitter.complete();
+            }
+        }
+
+        private boolean release() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            for (K key : keys) {
+                subscribersByKey.computeIfPresent(key, (k, subscribers) -> {
+                    subscribers.remove(this);
+                    return subscribers.isEmpty() ? null : subscribers;
+                });
+            }
+            globalSubscribers.remove(this);
+            buffer.clear();
+            allSubscribers.remove(this);
+            return true;
+        }
+    }
+}
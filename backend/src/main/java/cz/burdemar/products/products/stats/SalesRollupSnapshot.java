@@ -0,0 +1,42 @@
+package cz.burdemar.products.products.stats;
+
+import cz.burdemar.products.products.model.DailySalesRollup;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.model.ProductSalesRollup;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rollups recomputed from a range of orders. Snapshots of disjoint ranges are merged into one.
+ */
+@Getter
+public class SalesRollupSnapshot {
+    private final Map<Order.OrderStatus, Long> statusCounts = new EnumMap<>(Order.OrderStatus.class);
+    private final Map<LocalDate, DailySalesRollup> days = new HashMap<>();
+    private final Map<Long, ProductSalesRollup> products = new HashMap<>();
+    // Orders that could still change while the snapshot was read, with the status it saw
+    private final Map<Long, Order.OrderStatus> openOrderStatuses = new HashMap<>();
+
+    public DailySalesRollup day(LocalDate date) {
+        return days.computeIfAbsent(date, d -> DailySalesRollup.builder().salesDate(d).build());
+    }
+
+    public ProductSalesRollup product(Long productId) {
+        return products.computeIfAbsent(productId, id -> ProductSalesRollup.builder().productId(id).build());
+    }
+
+    public void addStatusCount(Order.OrderStatus status, long count) {
+        statusCounts.merge(status, count, Long::sum);
+    }
+
+    public void merge(SalesRollupSnapshot other) {
+        other.statusCounts.forEach(this::addStatusCount);
+        other.days.forEach((date, rollup) -> day(date).add(rollup));
+        other.products.forEach((productId, rollup) -> product(productId).add(rollup));
+        openOrderStatuses.putAll(other.openOrderStatuses);
+    }
+}
@@ -0,0 +1,65 @@
+package cz.burdemar.products.products.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Keeps the {@code capacity} products with the most paid units, updated one sale at a time.
+ * <p>
+ * Paid units of a product only ever grow, so a product outside the leaderboard can only enter
+ * it through its own update, which is checked against the current last place. Reading the
+ * leaderboard therefore never scans all products.
+ */
+public class TopSellers {
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::units).reversed()
+            .thenComparingLong(Entry::productId);
+
+    private final int capacity;
+    private final Map<Long, Long> unitsByProduct = new HashMap<>();
+    private final TreeSet<Entry> leaders = new TreeSet<>(RANKING);
+
+    public TopSellers(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(long productId, long units) {
+        long previous = unitsByProduct.getOrDefault(productId, 0L);
+        Entry updated = new Entry(productId, previous + units);
+        unitsByProduct.put(productId, updated.units());
+
+        if (leaders.remove(new Entry(productId, previous)) || leaders.size() < capacity) {
+            leaders.add(updated);
+        } else if (RANKING.compare(updated, leaders.last()) < 0) {
+            leaders.pollLast();
+            leaders.add(updated);
+        }
+    }
+
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> result = new ArrayList<>(Math.min(limit, leaders.size()));
+        for (Entry entry : leaders) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public synchronized void reset(Map<Long, Long> units) {
+        unitsByProduct.clear();
+        leaders.clear();
+        units.forEach(this::add);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public record Entry(long productId, long units) {
+    }
+}
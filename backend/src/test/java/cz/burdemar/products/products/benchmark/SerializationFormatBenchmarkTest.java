@@ -0,0 +1,130 @@
+package cz.burdemar.products.products.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.dto.OrderItemDTO;
+import cz.burdemar.products.products.model.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares payload size and encode/decode time of JSON, Smile and CBOR on order pages shaped
+ * like {@code GET /api/orders} responses. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class SerializationFormatBenchmarkTest {
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 500;
+
+    @ParameterizedTest
+    @ValueSource(ints = {50, 500, 5000})
+    void compareFormats_OnOrderPage(int pageSize) throws IOException {
+        List<OrderDTO> page = orderPage(pageSize);
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("json", mapper(new JsonFactory()));
+        mappers.put("smile", mapper(new SmileFactory()));
+        mappers.put("cbor", mapper(new CBORFactory()));
+
+        System.out.printf("%n%d orders%n%-6s %12s %12s %12s %12s%n", pageSize,
+                "format", "bytes", "gzip bytes", "encode us", "decode us");
+        for (Map.Entry<String, ObjectMapper> entry : mappers.entrySet()) {
+            ObjectMapper mapper = entry.getValue();
+            CollectionType type = mapper.getTypeFactory().constructCollectionType(List.class, OrderDTO.class);
+            byte[] payload = mapper.writeValueAsBytes(page);
+
+            assertEquals(page, mapper.readValue(payload, type));
+
+            int rounds = Math.max(1, MEASURED_ROUNDS * 50 / pageSize);
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                mapper.readValue(mapper.writeValueAsBytes(page), type);
+            }
+
+            long encodeStart = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                payload = mapper.writeValueAsBytes(page);
+            }
+            long encodeNanos = (System.nanoTime() - encodeStart) / rounds;
+
+            long decodeStart = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                mapper.readValue(payload, type);
+            }
+            long decodeNanos = (System.nanoTime() - decodeStart) / rounds;
+
+            System.out.printf("%-6s %12d %12d %12d %12d%n", entry.getKey(), payload.length, gzip(payload).length,
+                    encodeNanos / 1000, decodeNanos / 1000);
+        }
+    }
+
+    private static ObjectMapper mapper(JsonFactory factory) {
+        // Same settings as spring.jackson.serialization.write-dates-as-timestamps=false
+        return new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .factory(factory)
+                .build();
+    }
+
+    private static List<OrderDTO> orderPage(int size) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.of(2024, 3, 1, 12, 0);
+        Order.OrderStatus[] statuses = Order.OrderStatus.values();
+        List<OrderDTO> orders = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<OrderItemDTO> items = new ArrayList<>();
+            BigDecimal total = BigDecimal.ZERO;
+            for (int j = 0, count = 1 + random.nextInt(5); j < count; j++) {
+                BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(99_900), 2);
+                int quantity = 1 + random.nextInt(4);
+                BigDecimal subtotal = price.multiply(BigDecimal.valueOf(quantity));
+                total = total.add(subtotal);
+                items.add(OrderItemDTO.builder()
+                        .id((long) i * 10 + j)
+                        .productId((long) random.nextInt(1000))
+                        .productName("Product " + random.nextInt(1000))
+                        .quantity(quantity)
+                        .price(price)
+                        .subtotal(subtotal)
+                        .build());
+            }
+            LocalDateTime createdAt = now.minusMinutes(random.nextInt(100_000));
+            orders.add(OrderDTO.builder()
+                    .id((long) i)
+                    .status(statuses[random.nextInt(statuses.length)])
+                    .createdAt(createdAt)
+                    .expiryTime(createdAt.plusMinutes(30))
+                    .paidAt(random.nextBoolean() ? createdAt.plusMinutes(5) : null)
+                    .totalAmount(total)
+                    .items(items)
+                    .build());
+        }
+        return orders;
+    }
+
+    private static byte[] gzip(byte[] payload) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(payload);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,109 @@
+package cz.burdemar.products.products.cache;
+
+import cz.burdemar.products.products.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private Counter loaded;
+    private Counter joined;
+    private SingleFlight<Long, String> singleFlight;
+    // Own threads, as the common pool may have a single one and the leader blocks it
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        loaded = registry.counter("loaded");
+        joined = registry.counter("joined");
+        singleFlight = new SingleFlight<>(loaded, joined);
+    }
+
+    private void awaitJoined(int callers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (joined.count() < callers) {
+            assertTrue(System.nanoTime() < deadline, "callers did not join in time");
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    void load_WhileSameKeyIsLoading_ShouldShareTheRunningLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.load(1L, () -> {
+            loads.incrementAndGet();
+            awaitQuietly(release);
+            return "product 1";
+        }), executor);
+        while (loaded.count() < 1) {
+            Thread.onSpinWait();
+        }
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.load(1L, () -> {
+            loads.incrementAndGet();
+            return "second load";
+        }), executor);
+        awaitJoined(1);
+        release.countDown();
+
+        assertEquals("product 1", leader.get(5, TimeUnit.SECONDS));
+        assertEquals("product 1", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void load_AfterPreviousLoadFinished_ShouldLoadAgain() {
+        assertEquals("a", singleFlight.load(1L, () -> "a"));
+        assertEquals("b", singleFlight.load(1L, () -> "b"));
+
+        assertEquals(2.0, loaded.count());
+        assertEquals(0.0, joined.count());
+    }
+
+    @Test
+    void load_WhenRunningLoadFails_ShouldRethrowToJoinedCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.load(1L, () -> {
+            awaitQuietly(release);
+            throw new ResourceNotFoundException("Product not found with id: 1");
+        }), executor);
+        while (loaded.count() < 1) {
+            Thread.onSpinWait();
+        }
+
+        CompletableFuture<Throwable> follower = CompletableFuture.supplyAsync(() ->
+                assertThrows(ResourceNotFoundException.class, () -> singleFlight.load(1L, () -> "unused")), executor);
+        awaitJoined(1);
+        release.countDown();
+
+        assertEquals("Product not found with id: 1", follower.get(5, TimeUnit.SECONDS).getMessage());
+        assertTrue(leader.handle((value, e) -> e).get(5, TimeUnit.SECONDS).getCause() instanceof ResourceNotFoundException);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.dto.ProductDTO;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
+import cz.burdemar.products.products.model.CatalogEpoch;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.repository.CatalogEpochRepository;
+import cz.burdemar.products.products.repository.ProductRepository;
+import cz.burdemar.products.products.repository.ProductTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MappedProductStoreTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Mock
+    private CatalogEpochRepository catalogEpochRepository;
+
+    @Mock
+    private ProductChangeVersions changeVersions;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    void setUp() {
+        when(catalogEpochRepository.findById(CatalogEpoch.ID)).thenReturn(Optional.of(new CatalogEpoch(CatalogEpoch.ID, 42L)));
+    }
+
+    private MappedProductStore newStore() {
+        return new MappedProductStore(productRepository, productTombstoneRepository, catalogEpochRepository,
+                changeVersions, transactionManager, true, directory, 100, 1024);
+    }
+
+    private static Product product(long id, String name, String price, int stock) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .price(Money.of(new BigDecimal(price)))
+                .stockQuantity(stock)
+                .build();
+    }
+
+    @Test
+    void open_WithoutFiles_ShouldLoadCatalogAndServeIt() throws Exception {
+        when(changeVersions.committedWatermark()).thenReturn(5L);
+        when(productRepository.findPageAfter(anyLong(), any()))
+                .thenReturn(List.of(product(1L, "Kolo", "9.90", 3), product(4L, "Helma", "120.00", 0)));
+        MappedProductStore store = newStore();
+
+        store.open();
+
+        assertTrue(store.isReady());
+        ProductDTO stored = store.findById(4L);
+        assertEquals("Helma", stored.getName());
+        assertEquals(new BigDecimal("120.00"), stored.getPrice());
+        assertNull(store.findById(2L));
+        assertNull(store.findById(1000L));
+        assertEquals(List.of(1L, 4L), store.findAll().stream().map(ProductDTO::getId).toList());
+    }
+
+    @Test
+    void events_ShouldUpdateStockAndDropDeletedProducts() throws Exception {
+        when(changeVersions.committedWatermark()).thenReturn(5L);
+        when(productRepository.findPageAfter(anyLong(), any()))
+                .thenReturn(List.of(product(1L, "Kolo", "9.90", 3), product(4L, "Helma", "120.00", 0)));
+        MappedProductStore store = newStore();
+        store.open();
+        when(productRepository.findAllById(List.of(1L, 4L))).thenReturn(List.of(product(1L, "Kolo", "8.50", 3)));
+
+        store.onStockChanged(new ProductStockChangedEvent(1L, 2));
+        store.onProductsChanged(new ProductsChangedEvent(List.of(1L, 4L)));
+
+        ProductDTO stored = store.findById(1L);
+        assertEquals(new BigDecimal("8.50"), stored.getPrice());
+        assertEquals(3, stored.getStockQuantity());
+        assertNull(store.findById(4L));
+    }
+
+    @Test
+    void open_AfterCleanShutdown_ShouldOnlyCatchUp() throws Exception {
+        when(changeVersions.committedWatermark()).thenReturn(5L);
+        when(productRepository.findPageAfter(anyLong(), any())).thenReturn(List.of(product(1L, "Kolo", "9.90", 3)));
+        MappedProductStore first = newStore();
+        first.open();
+        first.onStockChanged(new ProductStockChangedEvent(1L, 1));
+        first.close();
+
+        when(changeVersions.committedWatermark()).thenReturn(7L);
+        when(productRepository.findChanged(5L, 7L)).thenReturn(List.of(product(2L, "Zvonek", "1.00", 10)));
+        when(productTombstoneRepository.findDeletedProductIds(5L, 7L)).thenReturn(List.of());
+        MappedProductStore reopened = newStore();
+        reopened.open();
+
+        verify(productRepository, times(1)).findPageAfter(anyLong(), any());
+        assertEquals(1, reopened.findById(1L).getStockQuantity());
+        assertEquals("Zvonek", reopened.findById(2L).getName());
+    }
+
+    @Test
+    void open_WithRecreatedDatabase_ShouldRebuild() throws Exception {
+        when(changeVersions.committedWatermark()).thenReturn(5L);
+        when(productRepository.findPageAfter(anyLong(), any())).thenReturn(List.of(product(1L, "Kolo", "9.90", 3)));
+        MappedProductStore first = newStore();
+        first.open();
+        first.close();
+
+        when(catalogEpochRepository.findById(CatalogEpoch.ID)).thenReturn(Optional.of(new CatalogEpoch(CatalogEpoch.ID, 43L)));
+        when(changeVersions.committedWatermark()).thenReturn(0L);
+        when(productRepository.findPageAfter(anyLong(), any())).thenReturn(List.of(product(2L, "Zvonek", "1.00", 10)));
+        MappedProductStore reopened = newStore();
+        reopened.open();
+
+        assertNull(reopened.findById(1L));
+        assertEquals(List.of(2L), reopened.findAll().stream().map(ProductDTO::getId).toList());
+    }
+
+    @Test
+    void open_ShouldReadBackProductsChangedWhileOpening() throws Exception {
+        MappedProductStore store = newStore();
+        when(changeVersions.committedWatermark()).thenReturn(5L);
+        when(productRepository.findPageAfter(anyLong(), any())).thenAnswer(invocation -> {
+            // Committed after the page was read
+            store.onStockChanged(new ProductStockChangedEvent(1L, 1));
+            return List.of(product(1L, "Kolo", "9.90", 3));
+        });
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(product(1L, "Kolo", "9.90", 1)));
+
+        store.open();
+
+        assertEquals(1, store.findById(1L).getStockQuantity());
+    }
+}
@@ -0,0 +1,96 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.repository.ProductRepository;
+import cz.burdemar.products.products.repository.ProductTombstoneRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductChangeVersionsTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    private ProductChangeVersions changeVersions;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findMaxChangeVersion()).thenReturn(5L);
+        when(productTombstoneRepository.findMaxChangeVersion()).thenReturn(null);
+        changeVersions = new ProductChangeVersions(productRepository, productTombstoneRepository);
+        changeVersions.loadLastVersion();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    /**
+     * Commits the simulated transaction the way the transaction manager would.
+     */
+    private static void complete() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    @Test
+    void current_ShouldReturnOneVersionPerTransaction() {
+        beginTransaction();
+
+        assertEquals(6L, changeVersions.current());
+        assertEquals(6L, changeVersions.current());
+        complete();
+
+        beginTransaction();
+        assertEquals(7L, changeVersions.current());
+        complete();
+    }
+
+    @Test
+    void committedWatermark_ShouldStayBelowOldestVersionInFlight() {
+        assertEquals(5L, changeVersions.committedWatermark());
+
+        beginTransaction();
+        changeVersions.current();
+        List<TransactionSynchronization> first = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.unbindResource(changeVersions);
+
+        beginTransaction();
+        assertEquals(7L, changeVersions.current());
+        complete();
+
+        // Version 7 committed, but 6 is still open and may yet become visible
+        assertEquals(5L, changeVersions.committedWatermark());
+
+        first.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertEquals(7L, changeVersions.committedWatermark());
+    }
+
+    @Test
+    void current_OutsideTransaction_ShouldThrow() {
+        assertThrows(IllegalStateException.class, () -> changeVersions.current());
+    }
+}
@@ -0,0 +1,106 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.event.ProductNameChangedEvent;
+import cz.burdemar.products.products.event.ProductsImportedEvent;
+import cz.burdemar.products.products.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductNameIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findIdsAndNamesAfter(anyLong(), any())).thenReturn(List.of(
+                new Object[]{1L, "Red Running Shoes"},
+                new Object[]{2L, "Blue running shirt"},
+                new Object[]{3L, "\u017dlu\u0165ou\u010dk\u00fd k\u016f\u0148"},
+                new Object[]{4L, "Red shirt"}));
+        index = new ProductNameIndex(productRepository, transactionManager);
+        index.build();
+    }
+
+    @Test
+    void search_WithSingleWord_ShouldMatchPrefixIgnoringCaseAndDiacritics() {
+        assertEquals(List.of(1L, 2L), index.search("RUN", 10));
+        assertEquals(List.of(3L), index.search("zlut", 10));
+        assertEquals(List.of(2L, 4L, 1L), index.search("sh", 10));
+        assertEquals(List.of(2L, 4L), index.search("sh", 2));
+    }
+
+    @Test
+    void search_WithSeveralWords_ShouldRequireAllAndTreatLastAsPrefix() {
+        assertEquals(List.of(1L, 4L), index.search("red s", 10));
+        assertEquals(List.of(4L), index.search("red shi", 10));
+        assertEquals(List.of(), index.search("re shirt", 10));
+        assertEquals(List.of(), index.search("  ", 10));
+        assertEquals(List.of(), index.search("red x", 10));
+    }
+
+    @Test
+    void search_WithPrefixOfManyWords_ShouldCheckCandidatesForThePrefix() {
+        List<Object[]> rows = new ArrayList<>();
+        LongStream.rangeClosed(1, 100).forEach(id -> rows.add(new Object[]{id, (id % 2 == 0 ? "Red s" : "Blue s") + id}));
+        when(productRepository.findIdsAndNamesAfter(anyLong(), any())).thenReturn(rows);
+        ProductNameIndex large = new ProductNameIndex(productRepository, transactionManager);
+        large.build();
+
+        assertEquals(List.of(2L, 4L, 6L), large.search("red s", 3));
+        assertEquals(List.of(10L, 100L), large.search("red s10", 3));
+    }
+
+    @Test
+    void onProductNameChanged_ShouldReindexRenamedAndDropDeletedProducts() {
+        when(productRepository.findIdsAndNamesByIds(List.of(4L))).thenReturn(List.<Object[]>of(new Object[]{4L, "Green shirt"}));
+        when(productRepository.findIdsAndNamesByIds(List.of(1L))).thenReturn(List.of());
+
+        index.onProductNameChanged(new ProductNameChangedEvent(4L));
+        index.onProductNameChanged(new ProductNameChangedEvent(1L));
+
+        assertEquals(List.of(), index.search("red", 10));
+        assertEquals(List.of(4L), index.search("green sh", 10));
+        assertEquals(List.of(2L), index.search("running", 10));
+    }
+
+    @Test
+    void onProductNameChanged_AppliedOutOfOrder_ShouldKeepCommittedName() {
+        // The listener of the earlier rename runs last, but reads the name committed since
+        when(productRepository.findIdsAndNamesByIds(List.of(4L))).thenReturn(List.<Object[]>of(new Object[]{4L, "Green shirt"}));
+
+        index.onProductNameChanged(new ProductNameChangedEvent(4L));
+        index.onProductNameChanged(new ProductNameChangedEvent(4L));
+
+        assertEquals(List.of(4L), index.search("green", 10));
+        assertEquals(List.of(1L), index.search("red", 10));
+    }
+
+    @Test
+    void onProductsImported_ShouldIndexProductsOfTheBatch() {
+        when(productRepository.findIdsAndNamesByChangeVersion(9L)).thenReturn(List.<Object[]>of(new Object[]{5L, "Red cap"}));
+
+        index.onProductsImported(new ProductsImportedEvent(9L));
+
+        assertEquals(List.of(1L, 4L, 5L), index.search("red", 10));
+    }
+}
@@ -0,0 +1,127 @@
+package cz.burdemar.products.products.catalog;
+
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
+import cz.burdemar.products.products.model.Money;
+import cz.burdemar.products.products.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPriceIndexTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ProductPriceIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findPricesAndStockAfter(anyLong(), any())).thenReturn(List.of(
+                new Object[]{1L, new Money(5000), 3},
+                new Object[]{2L, new Money(1000), 0},
+                new Object[]{3L, new Money(2500), 7},
+                new Object[]{4L, new Money(2500), 1},
+                new Object[]{5L, new Money(9900), 2}));
+        index = new ProductPriceIndex(productRepository, transactionManager);
+        index.build();
+    }
+
+    @Test
+    void filter_ShouldReturnPriceRangeInPriceThenIdOrder() {
+        assertEquals(List.of(2L, 3L, 4L, 1L, 5L), index.filter(null, null, false, false, 0, 10));
+        assertEquals(List.of(3L, 4L, 1L), index.filter(2500L, 5000L, false, false, 0, 10));
+        assertEquals(List.of(1L, 4L, 3L), index.filter(2500L, 5000L, false, true, 0, 10));
+        assertEquals(List.of(), index.filter(6000L, 9000L, false, false, 0, 10));
+    }
+
+    @Test
+    void filter_InStock_ShouldSkipSoldOutProductsBeforePaging() {
+        assertEquals(List.of(4L, 1L), index.filter(null, null, true, false, 1, 2));
+
+        index.onStockChanged(new ProductStockChangedEvent(2L, 4));
+        index.onStockChanged(new ProductStockChangedEvent(3L, 0));
+
+        assertEquals(List.of(2L, 4L), index.filter(null, 2500L, true, false, 0, 10));
+    }
+
+    @Test
+    void applyPendingChanges_ShouldMoveRepricedAndDropDeletedProducts() {
+        when(productRepository.findPricesAndStockByIds(idsOf(5L, 3L, 6L))).thenReturn(List.of(
+                new Object[]{5L, new Money(100), 2},
+                new Object[]{6L, new Money(3000), 8}));
+
+        index.onProductsChanged(new ProductsChangedEvent(List.of(5L, 3L)));
+        index.onProductsChanged(new ProductsChangedEvent(List.of(6L)));
+        assertEquals(List.of(2L, 3L, 4L, 1L, 5L), index.filter(null, null, false, false, 0, 10));
+
+        index.applyPendingChanges();
+
+        assertEquals(List.of(5L, 2L, 4L, 6L, 1L), index.filter(null, null, false, false, 0, 10));
+        index.onStockChanged(new ProductStockChangedEvent(6L, 0));
+        assertEquals(List.of(5L, 4L, 1L), index.filter(null, null, true, false, 0, 10));
+    }
+
+    @Test
+    void onStockChanged_DeliveredOutOfOrder_ShouldReadCommittedStockBackOnMerge() {
+        when(productRepository.findPricesAndStockByIds(idsOf(3L))).thenReturn(List.<Object[]>of(
+                new Object[]{3L, new Money(2500), 0}));
+
+        // The checkout that sold the product out is delivered before an earlier one
+        index.onStockChanged(new ProductStockChangedEvent(3L, 0));
+        index.onStockChanged(new ProductStockChangedEvent(3L, 5));
+        assertEquals(List.of(3L, 4L), index.filter(2500L, 2500L, true, false, 0, 10));
+
+        index.applyPendingChanges();
+
+        assertEquals(List.of(4L), index.filter(2500L, 2500L, true, false, 0, 10));
+    }
+
+    @Test
+    void applyPendingChanges_WithUnchangedPrice_ShouldOnlyUpdateStock() {
+        when(productRepository.findPricesAndStockByIds(idsOf(2L))).thenReturn(List.<Object[]>of(
+                new Object[]{2L, new Money(1000), 5}));
+
+        index.onProductsChanged(new ProductsChangedEvent(List.of(2L)));
+        index.applyPendingChanges();
+
+        assertEquals(List.of(2L, 3L, 4L, 1L, 5L), index.filter(null, null, true, false, 0, 10));
+    }
+
+    @Test
+    void build_ShouldReadBackProductsChangedWhileBuilding() {
+        ProductPriceIndex building = new ProductPriceIndex(productRepository, transactionManager);
+        building.onStockChanged(new ProductStockChangedEvent(1L, 0));
+        building.onProductsChanged(new ProductsChangedEvent(List.of(4L)));
+        building.applyPendingChanges();
+        verify(productRepository, never()).findPricesAndStockByIds(any());
+
+        when(productRepository.findPricesAndStockByIds(idsOf(1L, 4L))).thenReturn(List.of(
+                new Object[]{1L, new Money(5000), 0},
+                new Object[]{4L, new Money(8000), 1}));
+        building.build();
+        building.applyPendingChanges();
+
+        assertEquals(List.of(3L, 4L, 5L), building.filter(null, null, true, false, 0, 10));
+    }
+
+    private static List<Long> idsOf(Long... ids) {
+        return argThat(actual -> actual != null && Set.copyOf(actual).equals(Set.of(ids)));
+    }
+}
@@ -1,12 +1,17 @@
 package cz.burdemar.products.products.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.burdemar.products.products.cache.TerminalOrderCache;
 import cz.burdemar.products.products.dto.CreateOrderRequest;
 import cz.burdemar.products.products.dto.OrderDTO;
 import cz.burdemar.products.products.filter.JwtRequestFilter;
 import cz.burdemar.products.products.jwt.JwtTokenUtil;
 import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.service.BulkOrderService;
+import cz.burdemar.products.products.service.IdempotencyService;
+import cz.burdemar.products.products.service.OrderEventStreamService;
 import cz.burdemar.products.products.service.OrderService;
+import jakarta.servlet.FilterChain;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +36,9 @@ import java.util.List;
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -47,6 +55,18 @@ public class OrderControllerTest {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private OrderEventStreamService orderEventStreamService;
+
+    @MockBean
+    private TerminalOrderCache terminalOrderCache;
+
+    @MockBean
+    private BulkOrderService bulkOrderService;
+
     @MockBean
     private JwtRequestFilter jwtRequestFilter;
 
@@ -99,7 +119,7 @@ public class OrderControllerTest {
     @Test
     @WithMockUser(roles = "ADMIN")
     public void adminCanAccessAllEndpoints() throws Exception {
-        when(orderService.getAllOrders()).thenReturn(Collections.singletonList(sampleOrder));
+        when(orderService.getAllOrders(false)).thenReturn(Collections.singletonList(sampleOrder));
 
         mockMvc.perform(get("/api/orders"))
                 .andExpect(status().isOk());
@@ -120,4 +140,37 @@ public class OrderControllerTest {
                         .header("Authorization", "Bearer test-token"))
                 .andExpect(status().isOk());
     }
+
+    private void passRequestsThroughJwtFilter() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<FilterChain>getArgument(2).doFilter(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        }).when(jwtRequestFilter).doFilter(any(), any(), any());
+    }
+
+    @Test
+    public void getOrderById_WithCachedTerminalOrder_ShouldServeCachedJsonWithoutService() throws Exception {
+        passRequestsThroughJwtFilter();
+        when(terminalOrderCache.get(1L)).thenReturn("{\"id\":1,\"status\":\"PAID\"}".getBytes());
+
+        mockMvc.perform(get("/api/orders/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("immutable")))
+                .andExpect(header().string("Cache-Control", containsString("private")))
+                .andExpect(jsonPath("$.status", is("PAID")));
+
+        verify(orderService, never()).getOrderById(anyLong());
+    }
+
+    @Test
+    public void getOrderById_WithPendingOrder_ShouldNotBeCached() throws Exception {
+        passRequestsThroughJwtFilter();
+        when(orderService.getOrderById(1L)).thenReturn(sampleOrder);
+
+        mockMvc.perform(get("/api/orders/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("PENDING")))
+                .andExpect(header().string("Cache-Control", not(containsString("immutable"))));
+        verify(terminalOrderCache, never()).put(any());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package cz.burdemar.products.products.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReadOnlyRoutingDataSourceTest {
+
+    private final AtomicBoolean replicaUsable = new AtomicBoolean(true);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate readWriteTransaction;
+    private TransactionTemplate primaryReadTransaction;
+    private DataSource primary;
+    private DataSource primaryReads;
+
+    @BeforeEach
+    void setUp() {
+        // Separate instances stand in for the write and read pools of the primary, to tell them apart
+        primary = h2Instance("routing_primary");
+        primaryReads = h2Instance("routing_primary_reads");
+        DataSource replica = h2Instance("routing_replica");
+
+        useDataSource(new ReadOnlyRoutingDataSource(primary, primaryReads, replica, replicaUsable::get));
+    }
+
+    private void useDataSource(ReadOnlyRoutingDataSource routingDataSource) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        primaryReadTransaction = ReadOnlyRoutingDataSource.primaryReads(transactionManager);
+    }
+
+    private DataSource h2Instance(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS instance (name VARCHAR(32))");
+        jdbc.update("DELETE FROM instance");
+        jdbc.update("INSERT INTO instance (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private String currentInstance() {
+        return jdbcTemplate.queryForObject("SELECT name FROM instance", String.class);
+    }
+
+    @Test
+    void readOnlyTransaction_ShouldUseReplica() {
+        assertEquals("routing_replica", readOnlyTransaction.execute(status -> currentInstance()));
+    }
+
+    @Test
+    void readWriteTransaction_ShouldUsePrimary() {
+        assertEquals("routing_primary", readWriteTransaction.execute(status -> currentInstance()));
+    }
+
+    @Test
+    void readOnlyTransaction_WithLaggingReplica_ShouldUsePrimaryReadPool() {
+        replicaUsable.set(false);
+
+        assertEquals("routing_primary_reads", readOnlyTransaction.execute(status -> currentInstance()));
+    }
+
+    @Test
+    void primaryReadTransaction_ShouldUsePrimaryReadPoolEvenWithUsableReplica() {
+        assertEquals("routing_primary_reads", primaryReadTransaction.execute(status -> currentInstance()));
+    }
+
+    @Test
+    void withoutReplica_ShouldSplitReadsAndWritesOnPrimary() {
+        useDataSource(new ReadOnlyRoutingDataSource(primary, primaryReads));
+
+        assertEquals("routing_primary_reads", readOnlyTransaction.execute(status -> currentInstance()));
+        assertEquals("routing_primary", readWriteTransaction.execute(status -> currentInstance()));
+    }
+}
@@ -38,6 +38,15 @@ class GlobalExceptionHandlerTest {
         assertEquals("Invalid state", response.getBody().getMessage());
     }
 
+    @Test
+    void handleIdempotencyKeyConflictException() {
+        IdempotencyKeyConflictException ex = new IdempotencyKeyConflictException(HttpStatus.CONFLICT, "In flight");
+        ResponseEntity<GlobalExceptionHandler.ErrorResponse> response = exceptionHandler.handleIdempotencyKeyConflictException(ex);
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        assertEquals(409, response.getBody().getStatus());
+    }
+
     @Test
     void handleValidationExceptions() {
         MethodArgumentNotValidException ex = mock(MethodArgumentNotValidException.class);
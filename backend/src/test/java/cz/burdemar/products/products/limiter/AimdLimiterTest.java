@@ -0,0 +1,57 @@
+package cz.burdemar.products.products.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AimdLimiterTest {
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void tryAcquire_WhenLimitReached_ShouldReject() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, Duration.ofMillis(100), 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void release_WithFastRequestsAtLimit_ShouldIncreaseLimit() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 10, Duration.ofMillis(100), 0.5);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+
+        limiter.release(FAST);
+
+        assertEquals(3, limiter.getLimit());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    void release_WithSlowRequest_ShouldBackOffDownToMinimum() {
+        AimdLimiter limiter = new AimdLimiter(8, 3, 10, Duration.ofMillis(100), 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        assertEquals(4, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(SLOW);
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void release_WithFastRequestWhileMostlyIdle_ShouldKeepLimit() {
+        AimdLimiter limiter = new AimdLimiter(10, 1, 20, Duration.ofMillis(100), 0.5);
+        limiter.tryAcquire();
+
+        limiter.release(FAST);
+
+        assertEquals(10, limiter.getLimit());
+    }
+}
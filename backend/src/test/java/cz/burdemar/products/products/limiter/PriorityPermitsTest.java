@@ -0,0 +1,56 @@
+package cz.burdemar.products.products.limiter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityPermitsTest {
+
+    @Test
+    void tryAcquire_WhenOnlyReservedPermitsLeft_ShouldReject() {
+        PriorityPermits permits = new PriorityPermits(3, 1);
+
+        assertTrue(permits.tryAcquire());
+        assertTrue(permits.tryAcquire());
+        assertFalse(permits.tryAcquire());
+        assertEquals(2, permits.getInUse());
+    }
+
+    @Test
+    void acquirePriority_WhenOnlyReservedPermitsLeft_ShouldSucceed() throws InterruptedException {
+        PriorityPermits permits = new PriorityPermits(3, 1);
+        permits.tryAcquire();
+        permits.tryAcquire();
+
+        assertTrue(permits.acquirePriority(Duration.ZERO));
+        assertFalse(permits.acquirePriority(Duration.ofMillis(10)));
+        assertEquals(3, permits.getInUse());
+    }
+
+    @Test
+    void release_WithWaitingPriorityRequest_ShouldHandPermitToIt() throws Exception {
+        PriorityPermits permits = new PriorityPermits(2, 1);
+        permits.tryAcquire();
+        permits.acquirePriority(Duration.ZERO);
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> {
+            try {
+                return permits.acquirePriority(Duration.ofSeconds(5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (permits.getWaitingPriority() == 0) {
+            Thread.onSpinWait();
+        }
+
+        permits.release();
+
+        assertTrue(waiter.get(5, TimeUnit.SECONDS));
+        assertEquals(2, permits.getInUse());
+    }
+}
@@ -0,0 +1,90 @@
+package cz.burdemar.products.products.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SqlStatementRecorderTest {
+
+    private final DataSource target = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final SqlRecordingDataSource dataSource = new SqlRecordingDataSource(target);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(target.getConnection()).thenReturn(connection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SqlStatementRecorder.stop();
+    }
+
+    @Test
+    void execute_WithoutRecorder_ShouldPassThrough() throws Exception {
+        Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeUpdate("delete from orders")).thenReturn(3);
+
+        assertNull(SqlStatementRecorder.current());
+        assertEquals(3, dataSource.getConnection().createStatement().executeUpdate("delete from orders"));
+    }
+
+    @Test
+    void execute_WithRecorder_ShouldCountExecutionsNotPrepares() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement("select * from products where id=?")).thenReturn(statement);
+        when(connection.prepareStatement("select * from orders")).thenReturn(mock(PreparedStatement.class));
+        SqlStatementRecorder recorder = SqlStatementRecorder.start();
+
+        Connection recording = dataSource.getConnection();
+        recording.prepareStatement("select * from orders");
+        PreparedStatement prepared = recording.prepareStatement("select * from products where id=?");
+        prepared.executeQuery();
+        prepared.executeQuery();
+
+        assertEquals(2, recorder.getStatementCount());
+        verify(statement, times(2)).executeQuery();
+    }
+
+    @Test
+    void executeBatch_ShouldCountOncePerRoundTrip() throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement("update products set stock_quantity=? where id=?")).thenReturn(statement);
+        SqlStatementRecorder recorder = SqlStatementRecorder.start();
+
+        PreparedStatement prepared = dataSource.getConnection().prepareStatement("update products set stock_quantity=? where id=?");
+        for (int i = 0; i < 3; i++) {
+            prepared.addBatch();
+        }
+        prepared.executeBatch();
+
+        assertEquals(1, recorder.getStatementCount());
+    }
+
+    @Test
+    void getRepeatedStatements_ShouldReportStatementsOverThreshold() throws Exception {
+        when(connection.createStatement()).thenReturn(mock(Statement.class));
+        SqlStatementRecorder recorder = SqlStatementRecorder.start();
+
+        Statement statement = dataSource.getConnection().createStatement();
+        statement.executeQuery("select * from orders");
+        for (int i = 0; i < 5; i++) {
+            statement.executeQuery("select * from order_items where order_id=1");
+        }
+
+        Map<String, Integer> repeated = recorder.getRepeatedStatements(5);
+
+        assertEquals(1, repeated.size());
+        assertEquals(5, repeated.get("select * from order_items where order_id=1").intValue());
+    }
+}
@@ -0,0 +1,46 @@
+package cz.burdemar.products.products.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void of_ShouldStoreMinorUnits() {
+        assertEquals(9999, Money.of(new BigDecimal("99.99")).minorUnits());
+        assertEquals(1000, Money.of(new BigDecimal("10")).minorUnits());
+    }
+
+    @Test
+    void of_WithTooManyDecimals_ShouldThrowException() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("0.001")));
+    }
+
+    @Test
+    void toBigDecimal_ShouldKeepCurrencyScale() {
+        assertEquals(new BigDecimal("199.98"), Money.of(new BigDecimal("99.99")).times(2).toBigDecimal());
+    }
+
+    @Test
+    void calculateTotalAmount_ShouldSumLineTotals() {
+        Order order = new Order();
+        order.addItem(OrderItem.builder().price(Money.of(new BigDecimal("99.99"))).quantity(2).build());
+        order.addItem(OrderItem.builder().price(Money.of(new BigDecimal("0.05"))).quantity(3).build());
+
+        order.calculateTotalAmount();
+
+        assertEquals(new BigDecimal("200.13"), order.getTotalAmount().toBigDecimal());
+    }
+
+    @Test
+    void converter_ShouldRoundTripThroughDecimalColumn() {
+        MoneyConverter converter = new MoneyConverter();
+        Money price = Money.of(new BigDecimal("1299.99"));
+
+        assertEquals(price, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(price)));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+}
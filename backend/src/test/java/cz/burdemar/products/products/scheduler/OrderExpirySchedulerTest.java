@@ -1,10 +1,13 @@
 package cz.burdemar.products.products.scheduler;
 
+import cz.burdemar.products.products.metrics.ShopMetrics;
 import cz.burdemar.products.products.service.OrderService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.mockito.Mockito.times;
@@ -16,6 +19,9 @@ class OrderExpirySchedulerTest {
     @Mock
     private OrderService orderService;
 
+    @Spy
+    private ShopMetrics shopMetrics = new ShopMetrics(new SimpleMeterRegistry());
+
     @InjectMocks
     private OrderExpiryScheduler orderExpiryScheduler;
 
@@ -0,0 +1,61 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.BulkOrderOutcome;
+import cz.burdemar.products.products.dto.BulkOrderResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkOrderServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    private BulkOrderService bulkOrderService;
+
+    @BeforeEach
+    void setUp() {
+        bulkOrderService = new BulkOrderService(orderService, 2);
+    }
+
+    private static List<BulkOrderOutcome> succeeded(List<Long> ids) {
+        return ids.stream()
+                .map(id -> BulkOrderOutcome.builder().orderId(id).result(BulkOrderOutcome.Result.SUCCEEDED).build())
+                .toList();
+    }
+
+    @Test
+    void cancelOrders_ShouldProcessDistinctIdsInChunks() {
+        when(orderService.cancelOrders(anyList())).thenAnswer(invocation -> succeeded(invocation.getArgument(0)));
+
+        BulkOrderResult result = bulkOrderService.cancelOrders(List.of(1L, 2L, 2L, 3L));
+
+        verify(orderService).cancelOrders(List.of(1L, 2L));
+        verify(orderService).cancelOrders(List.of(3L));
+        assertEquals(3, result.getSucceeded());
+        assertEquals(0, result.getFailed());
+        assertEquals(List.of(1L, 2L, 3L), result.getOutcomes().stream().map(BulkOrderOutcome::getOrderId).toList());
+    }
+
+    @Test
+    void payOrders_WhenChunkFails_ShouldReportItsOrdersAsFailedAndContinue() {
+        when(orderService.payOrders(List.of(1L, 2L))).thenThrow(new IllegalStateException("Lock timeout"));
+        when(orderService.payOrders(List.of(3L))).thenReturn(succeeded(List.of(3L)));
+
+        BulkOrderResult result = bulkOrderService.payOrders(List.of(1L, 2L, 3L));
+
+        assertEquals(1, result.getSucceeded());
+        assertEquals(2, result.getFailed());
+        assertEquals(BulkOrderOutcome.Result.FAILED, result.getOutcomes().get(0).getResult());
+        assertEquals("Lock timeout", result.getOutcomes().get(1).getMessage());
+        assertEquals(BulkOrderOutcome.Result.SUCCEEDED, result.getOutcomes().get(2).getResult());
+    }
+}
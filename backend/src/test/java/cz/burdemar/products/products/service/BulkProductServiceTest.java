@@ -0,0 +1,67 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.ProductBulkUpdateRequest;
+import cz.burdemar.products.products.dto.ProductBulkUpdateResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkProductServiceTest {
+
+    @Mock
+    private ProductService productService;
+
+    private BulkProductService bulkProductService;
+
+    @BeforeEach
+    void setUp() {
+        bulkProductService = new BulkProductService(productService, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void applyUpdates_ShouldMergePerProductAndApplySortedChunks() {
+        when(productService.applyBulkUpdates(anyList())).thenReturn(Collections.emptyList());
+
+        ProductBulkUpdateResult result = bulkProductService.applyUpdates(List.of(
+                new ProductBulkUpdateRequest.Update(3L, 5, null),
+                new ProductBulkUpdateRequest.Update(1L, null, new BigDecimal("9.99")),
+                new ProductBulkUpdateRequest.Update(3L, -2, new BigDecimal("4.50")),
+                new ProductBulkUpdateRequest.Update(2L, 1, null),
+                new ProductBulkUpdateRequest.Update(4L, null, null)));
+
+        ArgumentCaptor<List<ProductBulkUpdateRequest.Update>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(productService, times(2)).applyBulkUpdates(chunks.capture());
+        assertEquals(List.of(1L, 2L), chunks.getAllValues().get(0).stream().map(ProductBulkUpdateRequest.Update::getProductId).toList());
+        ProductBulkUpdateRequest.Update merged = chunks.getAllValues().get(1).get(0);
+        assertEquals(3L, merged.getProductId());
+        assertEquals(3, merged.getStockDelta());
+        assertEquals(new BigDecimal("4.50"), merged.getPrice());
+
+        assertEquals(3, result.getUpdated());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(ProductBulkUpdateResult.Reason.EMPTY_UPDATE, result.getFailures().get(0).getReason());
+    }
+
+    @Test
+    void applyUpdates_WithOverflowingMergedDelta_ShouldRejectFeed() {
+        List<ProductBulkUpdateRequest.Update> updates = List.of(
+                new ProductBulkUpdateRequest.Update(1L, 5, null),
+                new ProductBulkUpdateRequest.Update(3L, Integer.MAX_VALUE, null),
+                new ProductBulkUpdateRequest.Update(3L, 1, null));
+
+        assertThrows(IllegalStateException.class, () -> bulkProductService.applyUpdates(updates));
+        verifyNoInteractions(productService);
+    }
+}
@@ -0,0 +1,199 @@
+package cz.burdemar.products.products.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.burdemar.products.products.dto.CreateOrderRequest;
+import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.exception.IdempotencyKeyConflictException;
+import cz.burdemar.products.products.model.IdempotencyRecord;
+import cz.burdemar.products.products.model.Order;
+import cz.burdemar.products.products.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    private static final String SCOPE = "POST /api/orders";
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IdempotencyService idempotencyService;
+    private OrderDTO testOrder;
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        idempotencyService = new IdempotencyService(idempotencyRecordRepository,
+                new ObjectMapper().findAndRegisterModules(), transactionManager, 100, Duration.ofHours(24),
+                Duration.ofSeconds(5));
+
+        testOrder = OrderDTO.builder()
+                .id(1L)
+                .status(Order.OrderStatus.PENDING)
+                .totalAmount(new BigDecimal("199.98"))
+                .items(Collections.emptyList())
+                .build();
+    }
+
+    private OrderDTO createOrder() {
+        executions.incrementAndGet();
+        return testOrder;
+    }
+
+    @Test
+    void execute_WithoutKey_ShouldRunActionWithoutStoring() {
+        ResponseEntity<OrderDTO> response = idempotencyService.execute(null, SCOPE, HttpStatus.CREATED,
+                OrderDTO.class, this::createOrder);
+
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(1, executions.get());
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void execute_WithRepeatedKey_ShouldReplayStoredResponse() {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.empty());
+
+        idempotencyService.execute("key-1", SCOPE, HttpStatus.CREATED, OrderDTO.class, this::createOrder);
+        ResponseEntity<OrderDTO> replayed = idempotencyService.execute("key-1", SCOPE, HttpStatus.CREATED,
+                OrderDTO.class, this::createOrder);
+
+        assertEquals(1, executions.get());
+        assertEquals(HttpStatus.CREATED, replayed.getStatusCode());
+        assertEquals(testOrder.getId(), replayed.getBody().getId());
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        verify(idempotencyRecordRepository, times(1)).claim(eq("key-1"), eq(SCOPE), any());
+        verify(idempotencyRecordRepository, times(1)).complete(eq("key-1"), eq(201), any());
+    }
+
+    @Test
+    void execute_WithKeyClaimedOnAnotherNode_ShouldReplayItsResponseWithoutRunning() throws Exception {
+        IdempotencyRecord other = IdempotencyRecord.builder()
+                .idempotencyKey("key-1")
+                .scope(SCOPE)
+                .statusCode(201)
+                .responseBody(new ObjectMapper().findAndRegisterModules().writeValueAsString(testOrder))
+                .createdAt(LocalDateTime.now())
+                .build();
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.empty(), Optional.empty(),
+                Optional.of(other));
+        doThrow(new DataIntegrityViolationException("Duplicate key"))
+                .when(idempotencyRecordRepository).claim(eq("key-1"), eq(SCOPE), any());
+
+        ResponseEntity<OrderDTO> response = idempotencyService.execute("key-1", SCOPE, HttpStatus.CREATED,
+                OrderDTO.class, this::createOrder);
+
+        assertEquals(0, executions.get());
+        assertEquals(testOrder.getId(), response.getBody().getId());
+        assertEquals("true", response.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void execute_WithKeyReusedForDifferentRequest_ShouldThrowException() {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.empty());
+        idempotencyService.execute("key-1", SCOPE, HttpStatus.CREATED, OrderDTO.class, this::createOrder);
+
+        IdempotencyKeyConflictException ex = assertThrows(IdempotencyKeyConflictException.class,
+                () -> idempotencyService.execute("key-1", "POST /api/orders/1/pay", HttpStatus.OK,
+                        OrderDTO.class, this::createOrder));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WithKeyReusedForDifferentBody_ShouldThrowException() {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.empty());
+        CreateOrderRequest first = new CreateOrderRequest(List.of(new CreateOrderRequest.OrderItemRequest(1L, 2)));
+        CreateOrderRequest second = new CreateOrderRequest(List.of(new CreateOrderRequest.OrderItemRequest(1L, 3)));
+        idempotencyService.execute("key-1", idempotencyService.scope(SCOPE, first), HttpStatus.CREATED,
+                OrderDTO.class, this::createOrder);
+
+        assertEquals(idempotencyService.scope(SCOPE, first), idempotencyService.scope(SCOPE,
+                new CreateOrderRequest(List.of(new CreateOrderRequest.OrderItemRequest(1L, 2)))));
+        assertThrows(IdempotencyKeyConflictException.class, () -> idempotencyService.execute("key-1",
+                idempotencyService.scope(SCOPE, second), HttpStatus.CREATED, OrderDTO.class, this::createOrder));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_WithFailedExecution_ShouldAllowRetry() {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("key-1", SCOPE,
+                HttpStatus.CREATED, OrderDTO.class, () -> {
+                    throw new IllegalStateException("Insufficient stock");
+                }));
+        idempotencyService.execute("key-1", SCOPE, HttpStatus.CREATED, OrderDTO.class, this::createOrder);
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, times(1)).release("key-1");
+    }
+
+    @Test
+    void execute_WithConcurrentDuplicate_ShouldWaitForFirstExecution() throws Exception {
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.empty());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<ResponseEntity<OrderDTO>> first = executor.submit(() -> idempotencyService.execute("key-1",
+                    SCOPE, HttpStatus.CREATED, OrderDTO.class, () -> {
+                        started.countDown();
+                        awaitQuietly(release);
+                        return createOrder();
+                    }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<ResponseEntity<OrderDTO>> duplicate = executor.submit(() -> idempotencyService.execute("key-1",
+                    SCOPE, HttpStatus.CREATED, OrderDTO.class, this::createOrder));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(testOrder.getId(), first.get(5, TimeUnit.SECONDS).getBody().getId());
+            assertEquals(testOrder.getId(), duplicate.get(5, TimeUnit.SECONDS).getBody().getId());
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.repository.OrderArchivalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderArchiveServiceTest {
+
+    @Mock
+    private OrderArchivalRepository orderArchivalRepository;
+
+    private OrderArchiveService orderArchiveService;
+
+    @BeforeEach
+    void setUp() {
+        orderArchiveService = new OrderArchiveService(orderArchivalRepository, Duration.ofDays(30), 2);
+    }
+
+    @Test
+    void archiveBatch_ShouldMoveOldestClosedOrdersOlderThanMinAge() {
+        when(orderArchivalRepository.findArchivableIds(any(LocalDateTime.class), eq(2))).thenReturn(List.of(3L, 4L));
+        when(orderArchivalRepository.moveToArchive(List.of(3L, 4L))).thenReturn(2);
+
+        assertEquals(2, orderArchiveService.archiveBatch());
+
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(orderArchivalRepository).findArchivableIds(cutoff.capture(), eq(2));
+        assertTrue(cutoff.getValue().isBefore(LocalDateTime.now().minusDays(29)));
+    }
+
+    @Test
+    void archiveBatch_WithNothingToArchive_ShouldNotMoveAnything() {
+        when(orderArchivalRepository.findArchivableIds(any(LocalDateTime.class), eq(2))).thenReturn(Collections.emptyList());
+
+        assertEquals(0, orderArchiveService.archiveBatch());
+        verify(orderArchivalRepository, never()).moveToArchive(anyList());
+    }
+}
@@ -1,18 +1,32 @@
 package cz.burdemar.products.products.service;
 
+import cz.burdemar.products.products.dto.BulkOrderOutcome;
 import cz.burdemar.products.products.dto.CreateOrderRequest;
 import cz.burdemar.products.products.dto.OrderDTO;
+import cz.burdemar.products.products.dto.OrderLineView;
+import cz.burdemar.products.products.dto.OrderSearchCriteria;
+import cz.burdemar.products.products.dto.OrderSearchResult;
+import cz.burdemar.products.products.event.OrderStatusChangedEvent;
 import cz.burdemar.products.products.exception.ResourceNotFoundException;
+import cz.burdemar.products.products.metrics.ShopMetrics;
+import cz.burdemar.products.products.model.Money;
 import cz.burdemar.products.products.model.Order;
 import cz.burdemar.products.products.model.OrderItem;
 import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.repository.ArchivedOrderRepository;
 import cz.burdemar.products.products.repository.OrderRepository;
+import cz.burdemar.products.products.repository.OrderSearchRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -20,7 +34,12 @@ import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,9 +48,21 @@ class OrderServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderSearchRepository orderSearchRepository;
+
+    @Mock
+    private ArchivedOrderRepository archivedOrderRepository;
+
     @Mock
     private ProductService productService;
 
+    @Spy
+    private ShopMetrics shopMetrics = new ShopMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -45,7 +76,7 @@ class OrderServiceTest {
         testProduct = Product.builder()
                 .id(1L)
                 .name("Test Product")
-                .price(new BigDecimal("99.99"))
+                .price(Money.of(new BigDecimal("99.99")))
                 .stockQuantity(10)
                 .build();
 
@@ -61,7 +92,7 @@ class OrderServiceTest {
                 .status(Order.OrderStatus.PENDING)
                 .createdAt(LocalDateTime.now())
                 .expiryTime(LocalDateTime.now().plusMinutes(30))
-                .totalAmount(new BigDecimal("199.98"))
+                .totalAmount(Money.of(new BigDecimal("199.98")))
                 .build();
         testOrderItem.setOrder(testOrder);
         testOrder.getItems().add(testOrderItem);
@@ -74,6 +105,90 @@ class OrderServiceTest {
         testCreateOrderRequest.setItems(Collections.singletonList(itemRequest));
     }
 
+    @Test
+    void getAllOrders_ShouldAssembleOrdersFromProjectionRows() {
+        LocalDateTime now = LocalDateTime.now();
+        Money price = Money.of(new BigDecimal("99.99"));
+        when(orderRepository.findAllOrderLines()).thenReturn(Arrays.asList(
+                new OrderLineView(1L, Order.OrderStatus.PENDING, now, now.plusMinutes(30), null, null,
+                        Money.of(new BigDecimal("299.97")), 10L, 1L, "Test Product", 2, price),
+                new OrderLineView(1L, Order.OrderStatus.PENDING, now, now.plusMinutes(30), null, null,
+                        Money.of(new BigDecimal("299.97")), 11L, 2L, "Other Product", 1, price),
+                new OrderLineView(2L, Order.OrderStatus.CANCELED, now, now.plusMinutes(30), null, now,
+                        Money.ZERO, null, null, null, null, null)));
+
+        List<OrderDTO> result = orderService.getAllOrders(false);
+
+        assertEquals(2, result.size());
+        assertEquals(2, result.get(0).getItems().size());
+        assertEquals(new BigDecimal("199.98"), result.get(0).getItems().get(0).getSubtotal());
+        assertEquals(new BigDecimal("299.97"), result.get(0).getTotalAmount());
+        assertTrue(result.get(1).getItems().isEmpty());
+        verify(orderRepository, never()).findAll();
+        verifyNoInteractions(archivedOrderRepository);
+    }
+
+    @Test
+    void searchOrders_WithMoreResultsThanPageSize_ShouldReturnNewestFirstWithCursor() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder()
+                .status(Order.OrderStatus.PAID)
+                .size(2)
+                .build();
+        when(orderSearchRepository.findIds(any(), isNull(), eq(3))).thenReturn(Arrays.asList(9L, 7L, 4L));
+        when(orderRepository.findOrderLinesByOrderIds(Arrays.asList(9L, 7L))).thenReturn(Arrays.asList(
+                new OrderLineView(7L, Order.OrderStatus.PAID, now, now, now, null, Money.ZERO, null, null, null, null, null),
+                new OrderLineView(9L, Order.OrderStatus.PAID, now, now, now, null, Money.ZERO, null, null, null, null, null)));
+
+        OrderSearchResult result = orderService.searchOrders(criteria);
+
+        assertTrue(result.isHasNext());
+        assertEquals(7L, result.getNextCursor());
+        assertEquals(Arrays.asList(9L, 7L), result.getOrders().stream().map(OrderDTO::getId).toList());
+    }
+
+    @Test
+    void searchOrders_IncludingArchived_ShouldMergeBothTablesNewestFirst() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder()
+                .includeArchived(true)
+                .size(2)
+                .build();
+        when(orderSearchRepository.findIds(any(), isNull(), eq(3))).thenReturn(Arrays.asList(9L, 4L));
+        when(orderSearchRepository.findArchivedIds(any(), isNull(), eq(3))).thenReturn(Arrays.asList(7L, 2L));
+        when(orderRepository.findOrderLinesByOrderIds(Arrays.asList(9L, 7L))).thenReturn(List.of(
+                new OrderLineView(9L, Order.OrderStatus.PENDING, now, now, null, null, Money.ZERO, null, null, null, null, null)));
+        when(archivedOrderRepository.findOrderLinesByOrderIds(List.of(7L))).thenReturn(List.of(
+                new OrderLineView(7L, Order.OrderStatus.PAID, now, now, now, null, Money.ZERO, null, null, null, null, null)));
+
+        OrderSearchResult result = orderService.searchOrders(criteria);
+
+        assertTrue(result.isHasNext());
+        assertEquals(7L, result.getNextCursor());
+        assertEquals(Arrays.asList(9L, 7L), result.getOrders().stream().map(OrderDTO::getId).toList());
+    }
+
+    @Test
+    void searchOrders_OnLastPage_ShouldNotReturnCursor() {
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder().afterId(4L).build();
+        when(orderSearchRepository.findIds(any(), eq(4L), anyInt())).thenReturn(Collections.emptyList());
+
+        OrderSearchResult result = orderService.searchOrders(criteria);
+
+        assertFalse(result.isHasNext());
+        assertNull(result.getNextCursor());
+        assertTrue(result.getOrders().isEmpty());
+        verify(orderRepository, never()).findOrderLinesByOrderIds(anyList());
+    }
+
+    @Test
+    void searchOrders_WithSubCentTotal_ShouldThrowException() {
+        OrderSearchCriteria criteria = OrderSearchCriteria.builder().minTotal(new BigDecimal("10.001")).build();
+
+        assertThrows(IllegalStateException.class, () -> orderService.searchOrders(criteria));
+        verifyNoInteractions(orderSearchRepository);
+    }
+
     @Test
     void getOrderById_WithValidId_ShouldReturnOrder() {
         when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
@@ -84,6 +199,21 @@ class OrderServiceTest {
         assertEquals(testOrder.getId(), result.getId());
     }
 
+    @Test
+    void getOrderById_WithArchivedOrder_ShouldFallBackToArchive() {
+        LocalDateTime now = LocalDateTime.now();
+        Money price = testProduct.getPrice();
+        when(orderRepository.findById(5L)).thenReturn(Optional.empty());
+        when(archivedOrderRepository.findOrderLines(5L)).thenReturn(Collections.singletonList(
+                new OrderLineView(5L, Order.OrderStatus.PAID, now, now, now, null, price, 7L, 1L, "Test Product", 1, price)));
+
+        OrderDTO result = orderService.getOrderById(5L);
+
+        assertEquals(5L, result.getId());
+        assertEquals(Order.OrderStatus.PAID, result.getStatus());
+        assertEquals("Test Product", result.getItems().get(0).getProductName());
+    }
+
     @Test
     void getOrderById_WithInvalidId_ShouldThrowException() {
         when(orderRepository.findById(999L)).thenReturn(Optional.empty());
@@ -93,82 +223,155 @@ class OrderServiceTest {
         });
     }
 
+    private List<OrderLineView> orderLines(Order.OrderStatus status, LocalDateTime paidAt, LocalDateTime canceledAt) {
+        Money price = testProduct.getPrice();
+        return Arrays.asList(
+                new OrderLineView(1L, status, testOrder.getCreatedAt(), testOrder.getExpiryTime(), paidAt, canceledAt,
+                        price.times(3), 1L, 1L, "Test Product", 2, price),
+                new OrderLineView(1L, status, testOrder.getCreatedAt(), testOrder.getExpiryTime(), paidAt, canceledAt,
+                        price.times(3), 2L, 1L, "Test Product", 1, price));
+    }
+
     @Test
     void payOrder_WithValidPendingOrder_ShouldReturnPaidOrder() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-
-        testOrder.setExpiryTime(LocalDateTime.now().plusMinutes(10)); // Not expired
-
-        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
-            Order order = invocation.getArgument(0);
-            order.setStatus(Order.OrderStatus.PAID);
-            order.setPaidAt(LocalDateTime.now());
-            return order;
-        });
+        when(orderRepository.markPaid(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+        when(orderRepository.findOrderLinesByOrderIds(List.of(1L)))
+                .thenReturn(orderLines(Order.OrderStatus.PAID, LocalDateTime.now(), null));
 
         OrderDTO result = orderService.payOrder(1L);
 
         assertNotNull(result);
         assertEquals(Order.OrderStatus.PAID, result.getStatus());
         assertNotNull(result.getPaidAt());
+        verify(orderRepository, never()).findById(anyLong());
+        verify(productService, never()).releaseStock(anyMap());
+
+        ArgumentCaptor<OrderStatusChangedEvent> event = ArgumentCaptor.forClass(OrderStatusChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(Order.OrderStatus.PENDING, event.getValue().previousStatus());
+        assertEquals(Order.OrderStatus.PAID, event.getValue().order().getStatus());
     }
 
     @Test
-    void payOrder_WithExpiredOrder_ShouldThrowException() {
-        Order expiredOrder = testOrder;
-        expiredOrder.setExpiryTime(LocalDateTime.now().minusMinutes(10)); // Expired
-
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(expiredOrder));
-        when(orderRepository.save(any(Order.class))).thenReturn(expiredOrder);
+    void payOrder_WithExpiredOrder_ShouldExpireOrderAndThrowException() {
+        when(orderRepository.markPaid(eq(1L), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Order.OrderStatus.PENDING));
+        when(orderRepository.markExpired(1L)).thenReturn(1);
+        when(orderRepository.findOrderLinesByOrderIds(List.of(1L)))
+                .thenReturn(orderLines(Order.OrderStatus.EXPIRED, null, null));
 
         assertThrows(IllegalStateException.class, () -> {
             orderService.payOrder(1L);
         });
+        verify(productService).releaseStock(Map.of(1L, 3));
     }
 
     @Test
-    void cancelOrder_WithValidPendingOrder_ShouldReturnCanceledOrder() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(testOrder));
-        doNothing().when(productService).releaseStock(anyList());
+    void payOrder_WithPaidOrder_ShouldThrowException() {
+        when(orderRepository.markPaid(eq(1L), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Order.OrderStatus.PAID));
 
-        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
-            Order order = invocation.getArgument(0);
-            order.setStatus(Order.OrderStatus.CANCELED);
-            order.setCanceledAt(LocalDateTime.now());
-            return order;
-        });
+        assertThrows(IllegalStateException.class, () -> orderService.payOrder(1L));
+        verify(orderRepository, never()).markExpired(anyLong());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void payOrder_WithUnknownOrder_ShouldThrowNotFound() {
+        when(orderRepository.markPaid(eq(999L), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.findStatusById(999L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> orderService.payOrder(999L));
+    }
+
+    @Test
+    void cancelOrder_WithValidPendingOrder_ShouldReturnCanceledOrder() {
+        when(orderRepository.markCanceled(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+        when(orderRepository.findOrderLinesByOrderIds(List.of(1L)))
+                .thenReturn(orderLines(Order.OrderStatus.CANCELED, null, LocalDateTime.now()));
 
         OrderDTO result = orderService.cancelOrder(1L);
 
         assertNotNull(result);
         assertEquals(Order.OrderStatus.CANCELED, result.getStatus());
         assertNotNull(result.getCanceledAt());
-        verify(productService, times(1)).releaseStock(anyList());
+        verify(productService, times(1)).releaseStock(Map.of(1L, 3));
     }
 
     @Test
     void cancelOrder_WithNonPendingOrder_ShouldThrowException() {
-        Order paidOrder = testOrder;
-        paidOrder.setStatus(Order.OrderStatus.PAID);
-
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(paidOrder));
+        when(orderRepository.markCanceled(eq(1L), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(Order.OrderStatus.PAID));
 
         assertThrows(IllegalStateException.class, () -> {
             orderService.cancelOrder(1L);
         });
-        verify(productService, never()).releaseStock(anyList());
+        verify(productService, never()).releaseStock(anyMap());
+    }
+
+    @Test
+    void cancelOrders_ShouldReleaseStockOncePerProductAndReportEachOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        Money price = testProduct.getPrice();
+        when(orderRepository.markCanceled(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+        when(orderRepository.markCanceled(eq(2L), any(LocalDateTime.class))).thenReturn(1);
+        when(orderRepository.markCanceled(eq(3L), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.markCanceled(eq(4L), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.findOrderLinesByOrderIds(List.of(1L, 2L))).thenReturn(Arrays.asList(
+                new OrderLineView(1L, Order.OrderStatus.CANCELED, now, now, null, now, price, 1L, 1L, "Test Product", 2, price),
+                new OrderLineView(2L, Order.OrderStatus.CANCELED, now, now, null, now, price, 2L, 1L, "Test Product", 3, price),
+                new OrderLineView(2L, Order.OrderStatus.CANCELED, now, now, null, now, price, 3L, 5L, "Other Product", 1, price)));
+        when(orderRepository.findStatusesByIds(List.of(3L, 4L)))
+                .thenReturn(Collections.singletonList(new Object[]{3L, Order.OrderStatus.PAID}));
+
+        List<BulkOrderOutcome> outcomes = orderService.cancelOrders(List.of(1L, 2L, 3L, 4L));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), outcomes.stream().map(BulkOrderOutcome::getOrderId).toList());
+        assertEquals(List.of(BulkOrderOutcome.Result.SUCCEEDED, BulkOrderOutcome.Result.SUCCEEDED,
+                        BulkOrderOutcome.Result.INVALID_STATUS, BulkOrderOutcome.Result.NOT_FOUND),
+                outcomes.stream().map(BulkOrderOutcome::getResult).toList());
+        verify(productService, times(1)).releaseStock(Map.of(1L, 5, 5L, 1));
+        verify(eventPublisher, times(2)).publishEvent(any(OrderStatusChangedEvent.class));
+    }
+
+    @Test
+    void cancelOrders_ShouldUpdateOrdersInIdOrder() {
+        when(orderRepository.markCanceled(anyLong(), any(LocalDateTime.class))).thenReturn(0);
+        when(orderRepository.findStatusesByIds(List.of(2L, 7L, 9L))).thenReturn(List.of());
+
+        List<BulkOrderOutcome> outcomes = orderService.cancelOrders(List.of(9L, 2L, 7L));
+
+        assertEquals(List.of(9L, 2L, 7L), outcomes.stream().map(BulkOrderOutcome::getOrderId).toList());
+        InOrder inOrder = inOrder(orderRepository);
+        inOrder.verify(orderRepository).markCanceled(eq(2L), any(LocalDateTime.class));
+        inOrder.verify(orderRepository).markCanceled(eq(7L), any(LocalDateTime.class));
+        inOrder.verify(orderRepository).markCanceled(eq(9L), any(LocalDateTime.class));
     }
 
     @Test
     void processExpiredOrders_ShouldExpireOrders() {
-        List<Order> expiredOrders = Collections.singletonList(testOrder);
-        when(orderRepository.findExpiredOrders(any(LocalDateTime.class))).thenReturn(expiredOrders);
-        when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
-        doNothing().when(productService).releaseStock(anyList());
+        when(orderRepository.findExpiredOrderIds(any(LocalDateTime.class))).thenReturn(List.of(1L));
+        when(orderRepository.markExpired(1L)).thenReturn(1);
+        when(orderRepository.findOrderLinesByOrderIds(List.of(1L)))
+                .thenReturn(orderLines(Order.OrderStatus.EXPIRED, null, null));
+
+        orderService.processExpiredOrders();
+
+        verify(productService, times(1)).releaseStock(Map.of(1L, 3));
+        ArgumentCaptor<OrderStatusChangedEvent> event = ArgumentCaptor.forClass(OrderStatusChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(Order.OrderStatus.PENDING, event.getValue().previousStatus());
+        assertEquals(Order.OrderStatus.EXPIRED, event.getValue().order().getStatus());
+    }
+
+    @Test
+    void processExpiredOrders_WhenOrderWasPaidMeanwhile_ShouldNotReleaseStock() {
+        when(orderRepository.findExpiredOrderIds(any(LocalDateTime.class))).thenReturn(List.of(1L));
+        when(orderRepository.markExpired(1L)).thenReturn(0);
 
         orderService.processExpiredOrders();
 
-        verify(orderRepository, times(1)).save(any(Order.class));
-        verify(productService, times(1)).releaseStock(anyList());
+        verify(productService, never()).releaseStock(anyMap());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package cz.burdemar.products.products.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cz.burdemar.products.products.dto.ProductImportResult;
+import cz.burdemar.products.products.event.ProductsImportedEvent;
+import cz.burdemar.products.products.repository.ProductImportRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductImportServiceTest {
+
+    @Mock
+    private ProductImportRepository productImportRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setUp() {
+        productImportService = new ProductImportService(productImportRepository, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), eventPublisher, 2, 1);
+    }
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void importCsv_ShouldInsertValidRowsInBatchesAndReportInvalidOnes() throws Exception {
+        List<List<Object[]>> batches = new ArrayList<>();
+        doAnswer(invocation -> {
+            batches.add(new ArrayList<>(invocation.<List<Object[]>>getArgument(0)));
+            return (long) batches.size();
+        }).when(productImportRepository).insertAll(anyList());
+
+        ProductImportResult result = productImportService.importCsv(body("""
+                name,price,stockQuantity
+                Laptop,999.99,5
+                Mouse,19.5,100
+                ,10.00,1
+                Cable,1.999,3
+                Desk, 250 ,2
+                """));
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.isErrorsTruncated());
+        assertEquals(3, result.getErrors().get(0).getRow());
+        assertEquals("Product name is required", result.getErrors().get(0).getMessage());
+        assertNull(result.getAbortedReason());
+
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals("Desk", batches.get(1).get(0)[0]);
+        assertEquals(new BigDecimal("250.00"), batches.get(1).get(0)[1]);
+        verify(eventPublisher).publishEvent(new ProductsImportedEvent(1L));
+        verify(eventPublisher).publishEvent(new ProductsImportedEvent(2L));
+    }
+
+    @Test
+    void importCsv_WithExtraColumns_ShouldIgnoreAndReportThem() throws Exception {
+        when(productImportRepository.insertAll(anyList())).thenReturn(1L);
+
+        ProductImportResult result = productImportService.importCsv(body("""
+                id,name,category,price,stockQuantity
+                7,Laptop,computers,999.99,5
+                """));
+
+        assertEquals(1, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals(List.of("id", "category"), result.getIgnoredColumns());
+    }
+
+    @Test
+    void importNdjson_WithUnmappableRow_ShouldSkipItAndContinue() throws Exception {
+        ProductImportResult result = productImportService.importNdjson(body("""
+                {"name":"Laptop","price":999.99,"stockQuantity":5}
+                {"name":"Mouse","price":"cheap","stockQuantity":1}
+                {"name":"Cable","price":2.50,"stockQuantity":3}
+                """));
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals(2, result.getErrors().get(0).getRow());
+        verify(productImportRepository, times(1)).insertAll(anyList());
+    }
+
+    @Test
+    void importNdjson_WithBrokenJson_ShouldKeepEarlierRowsAndReportAbort() throws Exception {
+        ProductImportResult result = productImportService.importNdjson(body("""
+                {"name":"Laptop","price":999.99,"stockQuantity":5}
+                {"name":"Mouse",
+                """));
+
+        assertEquals(1, result.getImported());
+        assertNotNull(result.getAbortedReason());
+        verify(productImportRepository, times(1)).insertAll(anyList());
+    }
+}
@@ -1,24 +1,48 @@
 package cz.burdemar.products.products.service;
 
+import cz.burdemar.products.products.catalog.MappedProductStore;
+import cz.burdemar.products.products.catalog.ProductChangeVersions;
+import cz.burdemar.products.products.catalog.ProductNameIndex;
+import cz.burdemar.products.products.catalog.ProductPriceIndex;
+import cz.burdemar.products.products.dto.ProductBatchResult;
+import cz.burdemar.products.products.dto.ProductBulkUpdateRequest;
+import cz.burdemar.products.products.dto.ProductBulkUpdateResult;
+import cz.burdemar.products.products.dto.ProductChangesDTO;
 import cz.burdemar.products.products.dto.ProductDTO;
+import cz.burdemar.products.products.dto.ProductFilterCriteria;
+import cz.burdemar.products.products.dto.ProductFilterResult;
+import cz.burdemar.products.products.event.ProductNameChangedEvent;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.event.ProductsChangedEvent;
 import cz.burdemar.products.products.exception.ResourceNotFoundException;
+import cz.burdemar.products.products.metrics.ShopMetrics;
+import cz.burdemar.products.products.model.Money;
 import cz.burdemar.products.products.model.Order;
 import cz.burdemar.products.products.model.OrderItem;
 import cz.burdemar.products.products.model.Product;
+import cz.burdemar.products.products.model.ProductTombstone;
 import cz.burdemar.products.products.repository.OrderRepository;
+import cz.burdemar.products.products.repository.ProductBulkUpdateRepository;
 import cz.burdemar.products.products.repository.ProductRepository;
+import cz.burdemar.products.products.repository.ProductSearchRepository;
+import cz.burdemar.products.products.repository.ProductTombstoneRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,6 +57,36 @@ class ProductServiceTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private ProductBulkUpdateRepository productBulkUpdateRepository;
+
+    @Mock
+    private ProductTombstoneRepository productTombstoneRepository;
+
+    @Mock
+    private ProductChangeVersions changeVersions;
+
+    @Mock
+    private ProductNameIndex productNameIndex;
+
+    @Mock
+    private ProductPriceIndex productPriceIndex;
+
+    @Mock
+    private ProductSearchRepository productSearchRepository;
+
+    @Mock
+    private MappedProductStore mappedProductStore;
+
+    @Spy
+    private ShopMetrics shopMetrics = new ShopMetrics(new SimpleMeterRegistry());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private ProductService productService;
 
@@ -44,7 +98,7 @@ class ProductServiceTest {
         testProduct = Product.builder()
                 .id(1L)
                 .name("Test Product")
-                .price(new BigDecimal("99.99"))
+                .price(Money.of(new BigDecimal("99.99")))
                 .stockQuantity(10)
                 .build();
 
@@ -77,6 +131,15 @@ class ProductServiceTest {
         assertEquals(testProduct.getName(), result.getName());
     }
 
+    @Test
+    void getProductById_WithReadyStore_ShouldServeFromStore() {
+        when(mappedProductStore.isReady()).thenReturn(true);
+        when(mappedProductStore.findById(1L)).thenReturn(testProductDTO);
+
+        assertSame(testProductDTO, productService.getProductById(1L));
+        verifyNoInteractions(productRepository);
+    }
+
     @Test
     void getProductById_WithInvalidId_ShouldThrowException() {
         when(productRepository.findById(999L)).thenReturn(Optional.empty());
@@ -86,6 +149,97 @@ class ProductServiceTest {
         });
     }
 
+    @Test
+    void getProductsByIds_ShouldKeepRequestOrderAndReportMissingIds() {
+        Product second = Product.builder()
+                .id(2L)
+                .name("Second Product")
+                .price(Money.of(new BigDecimal("5.00")))
+                .stockQuantity(1)
+                .build();
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct, second));
+
+        ProductBatchResult result = productService.getProductsByIds(List.of(2L, 9L, 1L, 2L));
+
+        assertEquals(List.of(2L, 1L), result.getProducts().stream().map(ProductDTO::getId).toList());
+        assertEquals(List.of(9L), result.getMissingIds());
+        verify(productRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void getProductsByIds_WithTooManyIds_ShouldThrowException() {
+        List<Long> ids = LongStream.rangeClosed(1, ProductService.MAX_BATCH_IDS + 1).boxed().toList();
+
+        assertThrows(IllegalStateException.class, () -> productService.getProductsByIds(ids));
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void searchProducts_ShouldLoadIndexMatchesInIndexOrder() {
+        Product second = Product.builder()
+                .id(2L)
+                .name("Test Cable")
+                .price(Money.of(new BigDecimal("5.00")))
+                .stockQuantity(1)
+                .build();
+        when(productNameIndex.search("tes", 20)).thenReturn(List.of(2L, 1L));
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct, second));
+
+        List<ProductDTO> result = productService.searchProducts("tes", 20);
+
+        assertEquals(List.of(2L, 1L), result.stream().map(ProductDTO::getId).toList());
+    }
+
+    @Test
+    void searchProducts_WithNoMatches_ShouldNotQueryRepository() {
+        when(productNameIndex.search("zzz", 20)).thenReturn(List.of());
+
+        assertTrue(productService.searchProducts("zzz", 20).isEmpty());
+        verify(productRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void filterProducts_SortedByPrice_ShouldUseIndexAndReportNextPage() {
+        when(productPriceIndex.filter(1000L, 20000L, true, true, 2, 3)).thenReturn(List.of(1L, 5L, 6L));
+        when(productRepository.findAllById(any())).thenReturn(List.of(testProduct));
+
+        ProductFilterResult result = productService.filterProducts(ProductFilterCriteria.builder()
+                .minPrice(new BigDecimal("10"))
+                .maxPrice(new BigDecimal("200.00"))
+                .inStock(true)
+                .sort(ProductFilterCriteria.SortOrder.PRICE_DESC)
+                .page(1)
+                .size(2)
+                .build());
+
+        assertTrue(result.isHasNext());
+        assertEquals(List.of(1L), result.getProducts().stream().map(ProductDTO::getId).toList());
+        verify(productRepository).findAllById(Set.of(1L, 5L));
+        verifyNoInteractions(productSearchRepository);
+    }
+
+    @Test
+    void filterProducts_SortedByName_ShouldFallBackToDatabase() {
+        when(productSearchRepository.findIdsOrderedByName(null, Money.of(new BigDecimal("5")), false, 0, 51))
+                .thenReturn(List.of());
+
+        ProductFilterResult result = productService.filterProducts(ProductFilterCriteria.builder()
+                .maxPrice(new BigDecimal("5"))
+                .sort(ProductFilterCriteria.SortOrder.NAME_ASC)
+                .build());
+
+        assertFalse(result.isHasNext());
+        assertTrue(result.getProducts().isEmpty());
+        verifyNoInteractions(productPriceIndex);
+    }
+
+    @Test
+    void filterProducts_WithSubCentPrice_ShouldThrowException() {
+        ProductFilterCriteria criteria = ProductFilterCriteria.builder().minPrice(new BigDecimal("0.001")).build();
+
+        assertThrows(IllegalStateException.class, () -> productService.filterProducts(criteria));
+    }
+
     @Test
     void createProduct_ShouldReturnCreatedProduct() {
         when(productRepository.save(any(Product.class))).thenReturn(testProduct);
@@ -110,35 +264,75 @@ class ProductServiceTest {
 
         assertEquals(testProduct.getId(), result.getId());
         verify(productRepository, times(1)).save(any(Product.class));
+        verify(eventPublisher).publishEvent(new ProductNameChangedEvent(1L));
+    }
+
+    @Test
+    void releaseStock_ShouldPublishNewStockOncePerProduct() {
+        when(productRepository.findWithLockById(1L)).thenReturn(Optional.of(testProduct));
+        OrderItem first = OrderItem.builder().product(testProduct).quantity(2).price(testProduct.getPrice()).build();
+        OrderItem second = OrderItem.builder().product(testProduct).quantity(3).price(testProduct.getPrice()).build();
+
+        productService.releaseStock(Arrays.asList(first, second));
+
+        assertEquals(15, testProduct.getStockQuantity());
+        verify(eventPublisher, times(1)).publishEvent(new ProductStockChangedEvent(1L, 15));
+    }
+
+    @Test
+    void applyBulkUpdates_ShouldApplyStockAndPriceInOneOrderedBatch() {
+        List<ProductBulkUpdateRequest.Update> updates = List.of(
+                new ProductBulkUpdateRequest.Update(1L, 5, new BigDecimal("10.00")),
+                new ProductBulkUpdateRequest.Update(2L, -50, new BigDecimal("20.00")),
+                new ProductBulkUpdateRequest.Update(3L, null, new BigDecimal("30.00")));
+        when(changeVersions.current()).thenReturn(7L);
+        when(productBulkUpdateRepository.applyUpdates(anyList(), eq(7L))).thenReturn(new boolean[]{true, false, false});
+        when(productBulkUpdateRepository.findExistingIds(Set.of(2L, 3L))).thenReturn(Set.of(2L));
+
+        List<ProductBulkUpdateResult.Failure> failures = productService.applyBulkUpdates(updates);
+
+        assertEquals(2, failures.size());
+        assertEquals(ProductBulkUpdateResult.Reason.INSUFFICIENT_STOCK, failures.get(0).getReason());
+        assertEquals(ProductBulkUpdateResult.Reason.NOT_FOUND, failures.get(1).getReason());
+        // One statement in id order, stock and price together
+        verify(productBulkUpdateRepository).applyUpdates(argThat(rows -> rows.size() == 3
+                && rows.get(0)[2].equals(1L) && rows.get(1)[2].equals(2L) && rows.get(2)[2].equals(3L)
+                && rows.get(2)[0] == null && rows.get(2)[1].equals(new BigDecimal("30.00"))), eq(7L));
+        verify(eventPublisher).publishEvent(new ProductsChangedEvent(List.of(1L)));
+    }
+
+    @Test
+    void getChanges_ShouldReturnChangesUpToCommittedWatermark() {
+        testProduct.setChangeVersion(12L);
+        when(changeVersions.committedWatermark()).thenReturn(15L);
+        when(productRepository.findChanged(10L, 15L)).thenReturn(List.of(testProduct));
+        when(productTombstoneRepository.findDeletedProductIds(10L, 15L)).thenReturn(List.of(4L));
+
+        ProductChangesDTO changes = productService.getChanges(10L);
+
+        assertEquals(15L, changes.getVersion());
+        assertEquals(List.of(1L), changes.getProducts().stream().map(ProductDTO::getId).toList());
+        assertEquals(List.of(4L), changes.getDeletedIds());
     }
 
     @Test
     void deleteProduct_WithValidIdAndNoActiveOrders_ShouldDeleteProduct() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-        when(orderRepository.findAll()).thenReturn(new ArrayList<>());
+        when(orderRepository.existsByStatusInAndItemsProductId(anyCollection(), eq(1L))).thenReturn(false);
+
+        when(changeVersions.current()).thenReturn(3L);
 
         assertDoesNotThrow(() -> productService.deleteProduct(1L));
         verify(productRepository, times(1)).delete(any(Product.class));
+        verify(productTombstoneRepository).save(new ProductTombstone(1L, 3L));
+        verify(eventPublisher).publishEvent(new ProductNameChangedEvent(1L));
     }
 
     @Test
     void deleteProduct_WithActiveOrders_ShouldThrowException() {
         when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
-
-        Order activeOrder = new Order();
-        activeOrder.setStatus(Order.OrderStatus.PENDING);
-
-        OrderItem orderItem = new OrderItem();
-        orderItem.setProduct(testProduct);
-
-        List<OrderItem> items = new ArrayList<>();
-        items.add(orderItem);
-        activeOrder.setItems(items);
-
-        List<Order> orders = new ArrayList<>();
-        orders.add(activeOrder);
-
-        when(orderRepository.findAll()).thenReturn(orders);
+        when(orderRepository.existsByStatusInAndItemsProductId(
+                List.of(Order.OrderStatus.PENDING, Order.OrderStatus.PAID), 1L)).thenReturn(true);
 
         assertThrows(IllegalStateException.class, () -> {
             productService.deleteProduct(1L);
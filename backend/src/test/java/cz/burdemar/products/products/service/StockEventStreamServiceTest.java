@@ -0,0 +1,70 @@
+package cz.burdemar.products.products.service;
+
+import cz.burdemar.products.products.dto.ProductStockDTO;
+import cz.burdemar.products.products.event.ProductStockChangedEvent;
+import cz.burdemar.products.products.sse.SseBroadcaster;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StockEventStreamServiceTest {
+
+    @Mock
+    private SseBroadcaster<Long, ProductStockDTO> stockEventBroadcaster;
+
+    @Mock
+    private ProductService productService;
+
+    @InjectMocks
+    private StockEventStreamService stockEventStreamService;
+
+    @Test
+    void publishPendingStock_ShouldSendCommittedQuantityOncePerProduct() {
+        when(productService.getCommittedStockLevels(any())).thenAnswer(invocation -> {
+            assertEquals(Set.of(1L, 2L), Set.copyOf(invocation.<List<Long>>getArgument(0)));
+            return List.of(new ProductStockDTO(1L, 7), new ProductStockDTO(2L, 3));
+        });
+        stockEventStreamService.onStockChanged(new ProductStockChangedEvent(1L, 7));
+        // Listener of an earlier commit running last
+        stockEventStreamService.onStockChanged(new ProductStockChangedEvent(1L, 9));
+        stockEventStreamService.onStockChanged(new ProductStockChangedEvent(2L, 3));
+
+        stockEventStreamService.publishPendingStock();
+        stockEventStreamService.publishPendingStock();
+
+        verify(stockEventBroadcaster).publish(1L, new ProductStockDTO(1L, 7));
+        verify(stockEventBroadcaster).publish(2L, new ProductStockDTO(2L, 3));
+        verifyNoMoreInteractions(stockEventBroadcaster);
+        verify(productService, times(1)).getCommittedStockLevels(any());
+    }
+
+    @Test
+    void publishPendingStock_WhenReadFails_ShouldKeepProductsPending() {
+        when(productService.getCommittedStockLevels(any()))
+                .thenThrow(new IllegalStateException("Connection refused"))
+                .thenReturn(List.of(new ProductStockDTO(1L, 4)));
+        stockEventStreamService.onStockChanged(new ProductStockChangedEvent(1L, 4));
+
+        assertThrows(IllegalStateException.class, () -> stockEventStreamService.publishPendingStock());
+        stockEventStreamService.publishPendingStock();
+
+        verify(stockEventBroadcaster).publish(1L, new ProductStockDTO(1L, 4));
+    }
+
+    @Test
+    void subscribe_WithoutProductIds_ShouldThrowException() {
+        assertThrows(IllegalStateException.class, () -> stockEventStreamService.subscribe(Collections.emptyList()));
+        verify(stockEventBroadcaster, never()).subscribe(any(), any());
+    }
+}
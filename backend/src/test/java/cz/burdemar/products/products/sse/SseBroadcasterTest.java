@@ -0,0 +1,76 @@
+package cz.burdemar.products.products.sse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseBroadcasterTest {
+
+    private final CountDownLatch senderBlocked = new CountDownLatch(1);
+    private ExecutorService executor;
+    private SseBroadcaster<Long, String> broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        // Occupy the only sender thread so published events stay in the subscriber buffers
+        executor = Executors.newSingleThreadExecutor();
+        executor.execute(() -> {
+            try {
+                senderBlocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        broadcaster = new SseBroadcaster<>("test", 2, Duration.ofMinutes(1), Duration.ofSeconds(10), executor,
+                Executors.newSingleThreadScheduledExecutor());
+    }
+
+    @AfterEach
+    void tearDown() {
+        senderBlocked.countDown();
+        broadcaster.close();
+    }
+
+    @Test
+    void subscribe_WhenInitialStateFails_ShouldNotKeepSubscriber() {
+        assertThrows(IllegalStateException.class, () -> broadcaster.subscribe(List.of(1L), () -> {
+            throw new IllegalStateException("missing");
+        }));
+
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void publish_WhenSubscriberBufferOverflows_ShouldDisconnectOnlyThatSubscriber() {
+        broadcaster.subscribe(List.of(1L), List::of);
+        broadcaster.subscribe(List.of(2L), List::of);
+        broadcaster.subscribeAll(event -> false);
+
+        broadcaster.publish(1L, "first");
+        broadcaster.publish(1L, "second");
+        assertEquals(3, broadcaster.getSubscriberCount());
+
+        broadcaster.publish(1L, "third");
+
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void heartbeat_WithIdleSubscribers_ShouldKeepThemConnected() {
+        broadcaster.subscribe(List.of(1L), List::of);
+        broadcaster.subscribeAll(event -> true);
+
+        broadcaster.heartbeat();
+        broadcaster.heartbeat();
+
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+}
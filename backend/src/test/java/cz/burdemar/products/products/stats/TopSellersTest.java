@@ -0,0 +1,46 @@
+package cz.burdemar.products.products.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopSellersTest {
+
+    @Test
+    void add_ShouldKeepProductsOrderedByUnits() {
+        TopSellers topSellers = new TopSellers(3);
+        topSellers.add(1L, 5);
+        topSellers.add(2L, 7);
+        topSellers.add(3L, 1);
+        topSellers.add(1L, 4);
+
+        List<TopSellers.Entry> top = topSellers.top(3);
+
+        assertEquals(List.of(new TopSellers.Entry(1L, 9), new TopSellers.Entry(2L, 7), new TopSellers.Entry(3L, 1)), top);
+    }
+
+    @Test
+    void add_WhenOutsiderOvertakesLastPlace_ShouldReplaceIt() {
+        TopSellers topSellers = new TopSellers(2);
+        topSellers.add(1L, 10);
+        topSellers.add(2L, 5);
+        topSellers.add(3L, 3);
+        assertEquals(List.of(1L, 2L), topSellers.top(2).stream().map(TopSellers.Entry::productId).toList());
+
+        // Product 3 accumulates units while outside the leaderboard
+        topSellers.add(3L, 3);
+
+        assertEquals(List.of(new TopSellers.Entry(1L, 10), new TopSellers.Entry(3L, 6)), topSellers.top(2));
+    }
+
+    @Test
+    void top_WithLimitBelowCapacity_ShouldReturnOnlyLeaders() {
+        TopSellers topSellers = new TopSellers(10);
+        topSellers.reset(Map.of(1L, 1L, 2L, 2L, 3L, 3L));
+
+        assertEquals(List.of(3L, 2L), topSellers.top(2).stream().map(TopSellers.Entry::productId).toList());
+    }
+}
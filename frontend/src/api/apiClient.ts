@@ -134,6 +134,15 @@ class ApiClient {
         this.cachedRoles = [];
     }
 
+    /**
+     * Open a Server-Sent Events stream
+     * @param url The URL of the stream
+     * @returns EventSource that reconnects on its own until closed
+     */
+    public eventSource(url: string): EventSource {
+        return new EventSource(`${this.baseURL}${url}`);
+    }
+
     /**
      * Make a GET request
      * @param url The URL to fetch
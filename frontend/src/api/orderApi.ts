@@ -47,5 +47,19 @@ export const orderApi = {
      */
     cancelOrder: async (id: number): Promise<OrderDTO> => {
         return apiClient.post<OrderDTO>(`/api/orders/${id}/cancel`);
+    },
+
+    /**
+     * Subscribe to live updates of an order
+     * @param id The order ID
+     * @param onUpdate Called with the current order and again after every status change
+     * @returns Function that closes the subscription
+     */
+    subscribeToOrder: (id: number, onUpdate: (order: OrderDTO) => void): (() => void) => {
+        const source = apiClient.eventSource(`/api/orders/${id}/events`);
+        source.addEventListener('order', (event) => {
+            onUpdate(JSON.parse((event as MessageEvent).data));
+        });
+        return () => source.close();
     }
 };
\ No newline at end of file
@@ -1,5 +1,13 @@
 import apiClient from './apiClient';
-import { ProductDTO, ProductFilterOptions } from '../types/product.types';
+import {
+    ProductBatchResult,
+    ProductChangesDTO,
+    ProductDTO,
+    ProductFilterOptions,
+    ProductFilterResult,
+    ProductSortOrder,
+    ProductStockDTO
+} from '../types/product.types';
 
 /**
  * API service for product-related operations
@@ -37,6 +45,73 @@ export const productApi = {
         return apiClient.get<ProductDTO>(`/api/products/${id}`);
     },
 
+    /**
+     * Page through products by price range and availability
+     * @param filters The price bounds and in-stock flag to apply
+     * @param sort The order of the products
+     * @param page Zero-based page number
+     * @param size Products per page, at most 200
+     * @returns Promise with the page of products
+     */
+    filterProducts: async (filters: ProductFilterOptions, sort: ProductSortOrder = 'PRICE_ASC',
+                           page = 0, size = 50): Promise<ProductFilterResult> => {
+        const params = new URLSearchParams();
+        if (filters.minPrice !== undefined) params.append('minPrice', filters.minPrice.toString());
+        if (filters.maxPrice !== undefined) params.append('maxPrice', filters.maxPrice.toString());
+        if (filters.inStock !== undefined) params.append('inStock', filters.inStock.toString());
+        params.append('sort', sort);
+        params.append('page', page.toString());
+        params.append('size', size.toString());
+
+        return apiClient.get<ProductFilterResult>(`/api/products/filter?${params.toString()}`);
+    },
+
+    /**
+     * Search products by name as the user types
+     * @param query The words to find; the last one may be unfinished
+     * @param limit The maximum number of products to return, at most 100
+     * @returns Promise with the matching products
+     */
+    searchProducts: async (query: string, limit = 20): Promise<ProductDTO[]> => {
+        return apiClient.get<ProductDTO[]>(`/api/products/search?q=${encodeURIComponent(query)}&limit=${limit}`);
+    },
+
+    /**
+     * Get several products by ID in one call
+     * @param ids The product IDs, at most 1000
+     * @returns Promise with the products in request order and the IDs that were not found
+     */
+    getProductsByIds: async (ids: number[]): Promise<ProductBatchResult> => {
+        // Long ID lists would not fit a URL
+        if (ids.length > 100) {
+            return apiClient.post<ProductBatchResult>('/api/products/batch', { ids });
+        }
+        return apiClient.get<ProductBatchResult>(`/api/products?ids=${ids.join(',')}`);
+    },
+
+    /**
+     * Get catalog changes since a version
+     * @param since The version returned by the previous call, or 0 for the whole catalog
+     * @returns Promise with the changed and deleted products and the new version
+     */
+    getChanges: async (since: number): Promise<ProductChangesDTO> => {
+        return apiClient.get<ProductChangesDTO>(`/api/products/changes?since=${since}`);
+    },
+
+    /**
+     * Subscribe to live stock levels of products
+     * @param ids The product IDs (at most 200)
+     * @param onStock Called with the current stock of each product and again after every change
+     * @returns Function that closes the subscription
+     */
+    subscribeToStock: (ids: number[], onStock: (stock: ProductStockDTO) => void): (() => void) => {
+        const source = apiClient.eventSource(`/api/products/stock-events?ids=${ids.join(',')}`);
+        source.addEventListener('stock', (event) => {
+            onStock(JSON.parse((event as MessageEvent).data));
+        });
+        return () => source.close();
+    },
+
     /**
      * Create a new product
      * @param product The product data to create
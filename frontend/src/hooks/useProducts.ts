@@ -1,6 +1,27 @@
-import { useState, useEffect, useCallback } from 'react';
+import { useState, useEffect, useCallback, useRef } from 'react';
 import { productApi } from '../api/productApi';
-import { ProductDTO, ProductFilterOptions } from '../types/product.types';
+import { ProductChangesDTO, ProductDTO, ProductFilterOptions } from '../types/product.types';
+
+const CATALOG_SYNC_INTERVAL_MS = 30000;
+
+/**
+ * Applies catalog changes to a product list, keeping the list as is when nothing changed
+ */
+const mergeChanges = (products: ProductDTO[], changes: ProductChangesDTO): ProductDTO[] => {
+    if (changes.products.length === 0 && changes.deletedIds.length === 0) {
+        return products;
+    }
+    const deleted = new Set(changes.deletedIds);
+    const changed = new Map<number | undefined, ProductDTO>(changes.products.map(p => [p.id, p]));
+    const merged = products
+        .filter(p => p.id === undefined || !deleted.has(p.id))
+        .map(p => {
+            const update = changed.get(p.id);
+            changed.delete(p.id);
+            return update ?? p;
+        });
+    return [...merged, ...Array.from(changed.values())];
+};
 
 /**
  * Custom hook for managing products
@@ -10,6 +31,7 @@ export const useProducts = () => {
     const [products, setProducts] = useState<ProductDTO[]>([]);
     const [loading, setLoading] = useState<boolean>(false);
     const [error, setError] = useState<string | null>(null);
+    const catalogVersion = useRef<number>(0);
 
     /**
      * Fetch all products from the API
@@ -31,10 +53,45 @@ export const useProducts = () => {
         }
     }, []);
 
-    // Load products on initial mount
+    /**
+     * Fetch what changed in the catalog since the last sync and apply it
+     */
+    const syncChanges = useCallback(async () => {
+        const since = catalogVersion.current;
+        const changes = await productApi.getChanges(since);
+        catalogVersion.current = changes.version;
+        setProducts(prev => since === 0 ? changes.products : mergeChanges(prev, changes));
+    }, []);
+
+    // Load the whole catalog on initial mount, then only poll for changes
+    useEffect(() => {
+        setLoading(true);
+        syncChanges()
+            .catch(err => {
+                setError('Failed to fetch products');
+                console.error(err);
+            })
+            .finally(() => setLoading(false));
+
+        const timer = window.setInterval(() => {
+            syncChanges().catch(err => console.error(err));
+        }, CATALOG_SYNC_INTERVAL_MS);
+        return () => window.clearInterval(timer);
+    }, [syncChanges]);
+
+    // Keep stock levels of the loaded products live instead of re-fetching the list
+    const productIds = products
+        .map(p => p.id)
+        .filter((id): id is number => id !== undefined)
+        .slice(0, 200)
+        .join(',');
     useEffect(() => {
-        fetchProducts();
-    }, [fetchProducts]);
+        if (!productIds) return;
+        return productApi.subscribeToStock(productIds.split(',').map(Number), stock => {
+            setProducts(prev => prev.map(p =>
+                p.id === stock.productId ? { ...p, stockQuantity: stock.stockQuantity } : p));
+        });
+    }, [productIds]);
 
     /**
      * Get a single product by ID
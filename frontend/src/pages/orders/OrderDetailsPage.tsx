@@ -32,6 +32,7 @@ import AccessTimeIcon from '@mui/icons-material/AccessTime';
 import Layout from '../../components/common/Layout';
 import Loader from '../../components/common/Loader';
 import { useOrders } from '../../hooks/useOrders';
+import { orderApi } from '../../api/orderApi';
 import { OrderDTO, OrderStatus } from '../../types/order.types';
 
 const OrderDetailsPage: React.FC = () => {
@@ -67,6 +68,11 @@ const OrderDetailsPage: React.FC = () => {
         fetchOrder();
     }, [id, getOrder]);
 
+    // Status changes (paid, canceled, expired) are pushed by the server while the page is open
+    useEffect(() => {
+        return orderApi.subscribeToOrder(Number(id), setOrder);
+    }, [id]);
+
     // Set up timer for pending orders
     useEffect(() => {
         if (!order || order.status !== OrderStatus.PENDING) return;
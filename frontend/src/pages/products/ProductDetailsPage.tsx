@@ -26,6 +26,7 @@ import DeleteIcon from '@mui/icons-material/Delete';
 import Layout from '../../components/common/Layout';
 import Loader from '../../components/common/Loader';
 import { useProducts } from '../../hooks/useProducts';
+import { productApi } from '../../api/productApi';
 import { ProductDTO } from '../../types/product.types';
 import { useAuth } from '../../context/AuthContext';
 
@@ -54,6 +55,13 @@ const ProductDetailsPage: React.FC = () => {
         fetchProduct();
     }, [id, getProduct]);
 
+    // Stock changes are pushed by the server while the page is open
+    useEffect(() => {
+        return productApi.subscribeToStock([Number(id)], stock => {
+            setProduct(prev => prev ? { ...prev, stockQuantity: stock.stockQuantity } : prev);
+        });
+    }, [id]);
+
     const handleOpenDeleteDialog = () => {
         setDeleteDialogOpen(true);
     };
@@ -55,6 +55,76 @@ export interface ProductDTO {
     updatedAt?: string;
 }
 
+/**
+ * Stock level of a product pushed by the server
+ */
+export interface ProductStockDTO {
+    /**
+     * The product identifier
+     */
+    productId: number;
+
+    /**
+     * The available quantity in stock
+     */
+    stockQuantity: number;
+}
+
+/**
+ * Sort orders of the product filter
+ */
+export type ProductSortOrder = 'PRICE_ASC' | 'PRICE_DESC' | 'NAME_ASC';
+
+/**
+ * One page of filtered products
+ */
+export interface ProductFilterResult {
+    /**
+     * Products of the page in the requested order
+     */
+    products: ProductDTO[];
+
+    /**
+     * Whether another page follows
+     */
+    hasNext: boolean;
+}
+
+/**
+ * Result of looking up several products by ID at once
+ */
+export interface ProductBatchResult {
+    /**
+     * Found products in the order they were requested
+     */
+    products: ProductDTO[];
+
+    /**
+     * Requested IDs with no product
+     */
+    missingIds: number[];
+}
+
+/**
+ * Catalog changes since a version, used to keep a local copy of the catalog up to date
+ */
+export interface ProductChangesDTO {
+    /**
+     * Products created or changed since the requested version
+     */
+    products: ProductDTO[];
+
+    /**
+     * IDs of products deleted since the requested version
+     */
+    deletedIds: number[];
+
+    /**
+     * The version to request changes since next time
+     */
+    version: number;
+}
+
 /**
  * Product Filter Options
  * Used for filtering products in list views